@@ -0,0 +1,85 @@
+package kif;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code Kif.getResponse} for each kind of command, from parsing to the saved change,
+ * against a list of 10,000 generated tasks kept in the text backend.
+ *
+ * <p>Commands that add a task grow the list as they run. {@code delete} is measured together with
+ * the {@code undo} that restores the task, so that the list keeps its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommandBenchmark {
+
+    private static final int TASK_COUNT = 10_000;
+
+    @Param({"list", "mark", "unmark", "todo", "deadline", "event", "delete", "find", "due", "overdue", "on",
+        "clashes"})
+    public String command;
+
+    private final Session session = new Session();
+    private String input;
+    private String followUp;
+
+    @Setup
+    public void loadTasks() throws IOException {
+        Path directory = TaskFiles.createDataDirectory();
+        TaskFiles.write(directory.resolve(TaskFiles.TASK_FILE_NAME), TASK_COUNT);
+        Storage.setBackend(Storage.Backend.TEXT);
+        Storage.setDataDirectory(directory);
+        Task.clearTasks();
+        Kif.loadTasks();
+
+        input = switch (command) {
+        case "list" -> "list";
+        case "mark" -> "mark 5000";
+        case "unmark" -> "unmark 5000";
+        case "todo" -> "todo read the benchmark results";
+        case "deadline" -> "deadline file the benchmark report /by 2025-06-30";
+        case "event" -> "event benchmark review /from 2025-06-30 1400 /to 2025-06-30 1500";
+        case "delete" -> "delete 5000";
+        case "find" -> "find report";
+        case "due" -> "due 2025-03-01 2025-03-31";
+        case "overdue" -> "overdue";
+        case "on" -> "on 2025-03-15";
+        case "clashes" -> "clashes";
+        default -> throw new IllegalArgumentException("Unknown command: " + command);
+        };
+        followUp = command.equals("delete") ? "undo" : null;
+    }
+
+    @TearDown
+    public void clearTasks() {
+        Task.clearTasks();
+    }
+
+    @Benchmark
+    public String getResponse() {
+        String response = Kif.getResponse(session, input);
+        if (followUp != null) {
+            Kif.getResponse(session, followUp);
+        }
+        return response;
+    }
+}
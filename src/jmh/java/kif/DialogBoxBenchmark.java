@@ -0,0 +1,89 @@
+package kif;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of building the dialog boxes for one exchange, that is one user message and
+ * Kif's reply, with the old per-message FXML loading and with the programmatic layout.
+ *
+ * <p>Needs a display, since the JavaFX toolkit is started to create the nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DialogBoxBenchmark {
+
+    private static final String USER_TEXT = "deadline return book /by 2025-03-01";
+    private static final String KIF_TEXT = Messages.formatMessage("Got it. I've added this task:",
+            "  [D][ ] return book (by: Mar 01 2025)", "Now you have 5 tasks in the list.");
+
+    private Image userImage;
+    private Image kifImage;
+
+    @Setup
+    public void startToolkit() {
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException e) {
+            // the toolkit is already running
+        }
+        kifImage = new Image(MainWindow.class.getResourceAsStream("/images/WhatsApp Image 2025-02-19 at 11.27.22.jpeg"));
+        userImage = new Image(MainWindow.class.getResourceAsStream("/images/WhatsApp Image 2025-02-19 at 11.27.24.jpeg"));
+    }
+
+    @Benchmark
+    public void fxmlDialogBoxes(Blackhole blackhole) throws IOException {
+        blackhole.consume(new FxmlDialogBox(USER_TEXT, userImage));
+        blackhole.consume(new FxmlDialogBox(KIF_TEXT, kifImage));
+    }
+
+    @Benchmark
+    public void programmaticDialogBoxes(Blackhole blackhole) {
+        blackhole.consume(Ui.DialogBox.getUserDialog(USER_TEXT, userImage));
+        blackhole.consume(Ui.DialogBox.getKifDialog(KIF_TEXT, kifImage));
+    }
+
+    /**
+     * The dialog box as it was built before, by parsing the FXML template for every instance.
+     */
+    public static class FxmlDialogBox extends HBox {
+
+        @FXML
+        private Label dialog;
+        @FXML
+        private ImageView displayPicture;
+
+        FxmlDialogBox(String text, Image img) throws IOException {
+            FXMLLoader fxmlLoader = new FXMLLoader(DialogBoxBenchmark.class.getResource("/view/DialogBox.fxml"));
+            fxmlLoader.setController(this);
+            fxmlLoader.setRoot(this);
+            fxmlLoader.load();
+            dialog.setText(text);
+            displayPicture.setImage(img);
+        }
+    }
+}
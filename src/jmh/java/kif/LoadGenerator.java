@@ -0,0 +1,163 @@
+package kif;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drives a Kif server over several connections and reports requests per second and latency percentiles.
+ *
+ * <p>Each connection keeps up to {@code depth} commands in flight, sending the next as soon as a reply
+ * comes back, and times each command from sending it to reading the end of its reply. The commands are
+ * a fixed mix of three reads to one write. Without {@code --port}, a server is started in this JVM over
+ * 10,000 generated tasks kept in a temporary directory; with it, the server already running on that
+ * port is used, and its tasks will grow by the writes.
+ *
+ * <p>Run with {@code gradlew loadTest --args="[--port <port>] [--connections <n>] [--requests <n>] [--depth <n>]"}.
+ */
+public class LoadGenerator {
+
+    private static final int TASK_COUNT = 10_000;
+    private static final int WARMUP_REQUESTS = 2_000;
+    private static final String[] COMMANDS = {
+        "list 1 --page-size 20", "find report", "todo load test", "on 2025-03-15",
+    };
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private int port = -1;
+    private int connections = 4;
+    private int requestsPerConnection = 20_000;
+    private int depth = 16;
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+            case "--port" -> generator.port = value;
+            case "--connections" -> generator.connections = value;
+            case "--requests" -> generator.requestsPerConnection = value;
+            case "--depth" -> generator.depth = value;
+            default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        generator.run();
+    }
+
+    private void run() throws Exception {
+        Server server = null;
+        Thread serverThread = null;
+        if (port < 0) {
+            Path directory = TaskFiles.createDataDirectory();
+            TaskFiles.write(directory.resolve(TaskFiles.TASK_FILE_NAME), TASK_COUNT);
+            Storage.setDataDirectory(directory);
+            Kif.loadTasks();
+            server = new Server(0);
+            port = server.getPort();
+            Server startedServer = server;
+            serverThread = new Thread(() -> {
+                try {
+                    startedServer.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, "kif-server");
+            serverThread.start();
+        }
+
+        drive(1, WARMUP_REQUESTS, new LatencyHistogram());
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        long start = System.nanoTime();
+        drive(connections, requestsPerConnection, latencies);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d connections, %d requests each, up to %d in flight per connection%n",
+                connections, requestsPerConnection, depth);
+        System.out.printf("%.0f requests/s%n", latencies.getCount() / seconds);
+        System.out.printf("latency: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                latencies.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                latencies.getValueAtPercentile(99) / NANOS_PER_MICRO,
+                latencies.getValueAtPercentile(99.9) / NANOS_PER_MICRO,
+                latencies.getMax() / NANOS_PER_MICRO);
+
+        if (server != null) {
+            server.close();
+            serverThread.join();
+        }
+    }
+
+    /**
+     * Runs the given number of connections to completion, each on a thread of its own.
+     */
+    private void drive(int connectionCount, int requests, LatencyHistogram latencies) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < connectionCount; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    driveConnection(requests, latencies);
+                } catch (IOException | InterruptedException e) {
+                    errors.add(e);
+                }
+            }, "kif-load-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!errors.isEmpty()) {
+            throw new IOException("A connection failed", errors.peek());
+        }
+    }
+
+    /**
+     * Sends the commands for one connection from this thread while another thread reads the replies.
+     */
+    private void driveConnection(int requests, LatencyHistogram latencies) throws IOException, InterruptedException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream output = socket.getOutputStream();
+            BufferedReader input = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Semaphore inFlight = new Semaphore(depth);
+            Queue<Long> sendTimes = new ConcurrentLinkedQueue<>();
+
+            Thread reader = new Thread(() -> {
+                try {
+                    for (int i = 0; i < requests; i++) {
+                        if (Server.readReply(input) == null) {
+                            throw new IOException("The server closed the connection");
+                        }
+                        latencies.record(System.nanoTime() - sendTimes.poll());
+                        inFlight.release();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            reader.start();
+
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                byte[] command = (COMMANDS[i % COMMANDS.length] + "\n").getBytes(StandardCharsets.UTF_8);
+                sendTimes.add(System.nanoTime());
+                output.write(command);
+                output.flush();
+            }
+            reader.join();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package kif;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the throughput of the scanning parser with the regex-based parsing it replaced,
+ * over a mix of commands as they would arrive in {@code Kif.getResponse}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    private static final String[] COMMANDS = {
+        "list",
+        "mark 12",
+        "todo buy groceries for the week",
+        "deadline submit quarterly report /by 2025-03-31",
+        "event team offsite /from 2025-04-02 0900 /to 2025-04-03 1700",
+        "find report",
+        "delete 7",
+        "hello there",
+    };
+
+    @Benchmark
+    public void regexParser(Blackhole blackhole) {
+        for (String command : COMMANDS) {
+            String[] words = command.trim().split("\\s+");
+            Kif.UserCommand userCommand;
+            try {
+                userCommand = Kif.UserCommand.valueOf(words[0].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                blackhole.consume(e);
+                continue;
+            }
+            blackhole.consume(words);
+            blackhole.consume(switch (userCommand) {
+            case DEADLINE -> regexDeadlineDetails(command);
+            case EVENT -> regexEventDetails(command);
+            case TODO -> command.replaceFirst("^todo", "").trim();
+            case FIND -> command.trim().replaceFirst("^(?i)find", "").trim();
+            default -> userCommand;
+            });
+        }
+    }
+
+    @Benchmark
+    public void scanningParser(Blackhole blackhole) throws KifException {
+        for (String command : COMMANDS) {
+            Kif.UserCommand userCommand = Parser.parseCommand(command);
+            if (userCommand == null) {
+                continue;
+            }
+            blackhole.consume(Parser.splitUserInput(command));
+            blackhole.consume(switch (userCommand) {
+            case DEADLINE -> Parser.extractDeadlineDetails(command);
+            case EVENT -> Parser.extractEventDetails(command);
+            case TODO -> Parser.extractToDoDescription(command);
+            case FIND -> Parser.extractFindQuery(command);
+            default -> userCommand;
+            });
+        }
+    }
+
+    private static String[] regexDeadlineDetails(String userInput) {
+        String[] parts = userInput.split(" /by ", 2);
+        parts[0] = parts[0].replaceFirst("^deadline ", "").trim();
+        return parts;
+    }
+
+    private static String[] regexEventDetails(String userInput) {
+        String[] parts = userInput.split(" /from | /to ", 3);
+        parts[0] = parts[0].replaceFirst("^event ", "").trim();
+        return parts;
+    }
+}
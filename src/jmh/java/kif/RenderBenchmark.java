@@ -0,0 +1,91 @@
+package kif;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares rendering unchanged tasks through the per-task and per-day caches with rendering them
+ * from scratch on every call, as {@code Task.toString} used to. Run with {@code -prof gc} to see
+ * that repeated renders through the caches allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+
+    private static final int TASK_COUNT = 1000;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy", Locale.ENGLISH);
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("MMM dd yyyy HH:mm", Locale.ENGLISH);
+
+    private final List<Task> tasks = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        LocalDate firstDay = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            LocalDate day = firstDay.plusDays(i % 90);
+            Task task = switch (i % 3) {
+            case 0 -> new Task.ToDo("Read chapter " + i);
+            case 1 -> new Task.Deadline("Submit report " + i, day);
+            default -> new Task.Event("Meeting " + i, day + "T09:00", day + "T10:30");
+            };
+            task.isDone = i % 4 == 0;
+            tasks.add(task);
+        }
+    }
+
+    @Benchmark
+    public void uncachedRender(Blackhole blackhole) {
+        for (Task task : tasks) {
+            String status = String.format("[%s] %s", task.getStatusIcon(), task.description);
+            if (task instanceof Task.Deadline deadline) {
+                blackhole.consume("[D]" + status + " (by: " + deadline.getDeadline().format(DATE_FORMATTER) + ")");
+            } else if (task instanceof Task.Event event) {
+                blackhole.consume("[E]" + status
+                        + " (from: " + ((LocalDateTime) event.getStartTime()).format(DATE_TIME_FORMATTER)
+                        + " to: " + ((LocalDateTime) event.getEndTime()).format(DATE_TIME_FORMATTER) + ")");
+            } else {
+                blackhole.consume("[T]" + status);
+            }
+        }
+    }
+
+    @Benchmark
+    public void cachedRender(Blackhole blackhole) {
+        for (Task task : tasks) {
+            blackhole.consume(task.toString());
+        }
+    }
+
+    @Benchmark
+    public void cachedDates(Blackhole blackhole) {
+        for (Task task : tasks) {
+            if (task instanceof Task.Deadline deadline) {
+                blackhole.consume(Parser.formatDate(deadline.getDeadline()));
+            } else if (task instanceof Task.Event event) {
+                blackhole.consume(Parser.formatEventTime(event.getStartTime(), event.getStart()));
+            }
+        }
+    }
+}
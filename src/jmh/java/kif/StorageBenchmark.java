@@ -0,0 +1,71 @@
+package kif;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading a generated task file of each size into the task list, and editing one task in it,
+ * with the text backend.
+ *
+ * <p>Each edit marks and then unmarks the same task, so that the file is unchanged between calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int lineCount;
+
+    @Param({"false", "true"})
+    public boolean isParallel;
+
+    @Setup
+    public void writeTaskFile() throws IOException {
+        Path directory = TaskFiles.createDataDirectory();
+        TaskFiles.write(directory.resolve(TaskFiles.TASK_FILE_NAME), lineCount);
+        Storage.setBackend(Storage.Backend.TEXT);
+        Storage.setParallelLoading(isParallel);
+        Storage.setDataDirectory(directory);
+    }
+
+    @TearDown
+    public void clearTasks() {
+        Task.clearTasks();
+    }
+
+    @Benchmark
+    public int initialiseUserTasks() {
+        Task.clearTasks();
+        Storage.initialiseUserTasks();
+        return Task.getTotalTasks();
+    }
+
+    @Benchmark
+    public void editTaskTxt() {
+        if (Task.getTotalTasks() != lineCount) {
+            Task.clearTasks();
+            Storage.initialiseUserTasks();
+        }
+        int middle = lineCount / 2;
+        Storage.editTaskTxt(middle, Kif.UserCommand.MARK);
+        Storage.editTaskTxt(middle, Kif.UserCommand.UNMARK);
+    }
+}
@@ -0,0 +1,98 @@
+package kif;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic tasks and task files for the benchmarks.
+ *
+ * <p>The tasks are a fixed mix of to-dos, deadlines and events with a quarter of them done, drawn from
+ * a seeded generator so that every run, and every release, measures exactly the same data.
+ */
+final class TaskFiles {
+
+    /** The name Storage gives the task file in its data directory. */
+    static final String TASK_FILE_NAME = "tasks.txt";
+
+    private static final long SEED = 42;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    private static final int DAYS = 365;
+    private static final String[] WORDS = {
+        "read", "book", "submit", "report", "team", "meeting", "buy", "groceries", "call", "mum",
+        "project", "review", "gym", "dentist", "pay", "rent", "plan", "trip", "draft", "email",
+    };
+
+    private TaskFiles() {
+    }
+
+    /**
+     * Creates a mix of tasks that have not been added to the task list.
+     *
+     * @param count The number of tasks.
+     * @return The tasks.
+     */
+    static List<Task> createTasks(int count) {
+        Random random = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + i;
+            LocalDate day = FIRST_DAY.plusDays(random.nextInt(DAYS));
+            Task task = switch (random.nextInt(3)) {
+            case 0 -> new Task.ToDo(description);
+            case 1 -> new Task.Deadline(description, day);
+            default -> new Task.Event(description, day.atTime(random.nextInt(20), 0).toString(),
+                    day.atTime(20 + random.nextInt(4), 30).toString());
+            };
+            task.isDone = random.nextInt(4) == 0;
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Writes a task file of generated tasks, replacing any file already there.
+     *
+     * @param file The file to write.
+     * @param count The number of tasks.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(Path file, int count) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Task task : createTasks(count)) {
+                writer.write(Storage.formatTask(task));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Creates an empty directory for task files, removed when the JVM exits.
+     *
+     * @return The directory.
+     * @throws IOException If the directory cannot be created.
+     */
+    static Path createDataDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("kif-bench");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteQuietly(directory)));
+        return directory;
+    }
+
+    private static void deleteQuietly(Path directory) {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // leave it to the temporary directory's own clean-up
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package kif;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading the in-memory task list at each size: listing the first page, listing every
+ * task, and finding a task's position.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskListBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int taskCount;
+
+    private Task middleTask;
+    private Task lastTask;
+
+    @Setup
+    public void addTasks() {
+        Task.clearTasks();
+        List<Task> tasks = TaskFiles.createTasks(taskCount);
+        tasks.forEach(Task::addTask);
+        middleTask = tasks.get(taskCount / 2);
+        lastTask = tasks.get(taskCount - 1);
+    }
+
+    @TearDown
+    public void clearTasks() {
+        Task.clearTasks();
+    }
+
+    @Benchmark
+    public String listFirstPage() {
+        return Task.listUserTask(1, Task.DEFAULT_LIST_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public String listAllTasks() {
+        return Task.listUserTask();
+    }
+
+    @Benchmark
+    public int getTaskIndexOfMiddleTask() {
+        return Task.getTaskIndex(middleTask);
+    }
+
+    @Benchmark
+    public int getTaskIndexOfLastTask() {
+        return Task.getTaskIndex(lastTask);
+    }
+}
@@ -0,0 +1,89 @@
+package kif;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Runs a script of commands without the GUI, one command per line.
+ *
+ * <p>Changes are kept in memory while the script runs and saved in a single write of the whole
+ * task list at the end, and also every {@code checkpointInterval} commands if one is given,
+ * so a large import costs a handful of file writes rather than one per command.
+ * A {@code bye} line ends the script early; blank lines are skipped. A line that fails, such as one
+ * with a bad date, is reported with its line number and the rest of the script still runs.
+ */
+class BatchRunner {
+
+    private final int checkpointInterval;
+    private final Session session = new Session();
+    private int failedLineCount;
+
+    /**
+     * Constructs a batch runner.
+     *
+     * @param checkpointInterval The number of commands between saves, or 0 to save only at the end.
+     */
+    BatchRunner(int checkpointInterval) {
+        assert checkpointInterval >= 0 : "Checkpoint interval should not be negative";
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Runs every command from the input, writing Kif's responses to the output
+     * and the line number and cause of each failed command to the error output.
+     *
+     * @param commands The script to run.
+     * @param output Where to write the responses.
+     * @param errors Where to report failed commands.
+     * @return The number of commands run, including failed ones.
+     * @throws IOException If the script cannot be read or the tasks cannot be saved.
+     */
+    int run(BufferedReader commands, Writer output, Writer errors) throws IOException {
+        Kif.loadTasks();
+        Kif.deferWrites();
+
+        int count = 0;
+        int lineNumber = 0;
+        try {
+            String line;
+            while ((line = commands.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (Parser.parseCommand(line) == Kif.UserCommand.BYE) {
+                    break;
+                }
+
+                output.write(Kif.getResponse(session, line));
+                output.write(System.lineSeparator());
+                if (session.lastFailure != null) {
+                    failedLineCount++;
+                    errors.write("Line " + lineNumber + ": " + session.lastFailure.getMessage()
+                            + System.lineSeparator());
+                }
+                count++;
+                if (checkpointInterval > 0 && count % checkpointInterval == 0) {
+                    Kif.flushDeferredWrites();
+                }
+            }
+        } finally {
+            try {
+                Kif.stopDeferringWrites();
+            } finally {
+                session.close();
+                output.flush();
+                errors.flush();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of lines whose commands failed in the scripts run so far.
+     */
+    int getFailedLineCount() {
+        return failedLineCount;
+    }
+}
@@ -0,0 +1,351 @@
+package kif;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * A compact binary task store kept in a memory-mapped file.
+ *
+ * <p>The file starts with a fixed header, followed by an index region of {@code capacity}
+ * record offsets and then the record data. Because each task's offset is known, a task can be
+ * read, or its completion flag flipped, in place without parsing or rewriting the rest of the file.
+ * Deleting a task only shifts the index region, leaving the record bytes behind as garbage.
+ *
+ * <p>Unless the durability leaves flushing to the operating system, each change is forced to the
+ * device before it returns, and a new record is forced before the header that counts it. When the
+ * index region fills up, or deleted records take up half the data, the live records are copied into
+ * a new file that then replaces the old one in a single rename, so the store is never left half moved.
+ * A crash part way through a delete can still leave the task after the deleted one listed twice.
+ *
+ * <p>Each record is laid out as {@code flags:byte type:byte description:string} followed by
+ * {@code by:long} (epoch day) for deadlines or {@code start:string end:string} for events,
+ * where strings are an {@code int} byte length followed by UTF-8 bytes.
+ */
+class BinaryStorage implements AutoCloseable {
+
+    private static final int MAGIC = 0x4B494631; // "KIF1"
+    private static final int MAGIC_OFFSET = 0;
+    private static final int COUNT_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int DATA_END_OFFSET = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_DATA_SIZE = 64 * 1024;
+    private static final byte DONE_FLAG = 1;
+    private static final String REWRITE_SUFFIX = ".new";
+
+    private final Path path;
+    private final boolean isForcingChanges;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int count;
+    private int capacity;
+    private int dataEnd;
+    // the bytes of records deleted since the store was opened, which a rewrite would reclaim
+    private int deletedSize;
+
+    private BinaryStorage(Path path, Storage.Durability durability) {
+        this.path = path;
+        this.isForcingChanges = durability != Storage.Durability.OS_BUFFERED;
+    }
+
+    /**
+     * Opens the binary store at the given path, creating an empty one if it does not exist.
+     *
+     * @param path The path of the binary task file.
+     * @param durability How soon changes must reach the disk; there is no grouping, so {@code BATCHED}
+     *     forces each change like {@code PER_COMMAND}.
+     * @return The opened store.
+     * @throws IOException If the file cannot be opened or is not a binary task file.
+     */
+    static BinaryStorage open(Path path, Storage.Durability durability) throws IOException {
+        return open(path, durability, INITIAL_CAPACITY);
+    }
+
+    private static BinaryStorage open(Path path, Storage.Durability durability, int initialCapacity)
+            throws IOException {
+        BinaryStorage store = new BinaryStorage(path, durability);
+        Files.deleteIfExists(Path.of(path + REWRITE_SUFFIX));
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            store.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            store.capacity = initialCapacity;
+            store.remap(HEADER_SIZE + (long) initialCapacity * Integer.BYTES + INITIAL_DATA_SIZE);
+            store.buffer.putInt(MAGIC_OFFSET, MAGIC);
+            store.writeHeader();
+            store.buffer.force();
+        } else {
+            store.map();
+        }
+        return store;
+    }
+
+    /**
+     * Maps the existing file at the store's path and reads its header.
+     */
+    private void map() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        remap(channel.size());
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            channel.close();
+            throw new IOException("Not a binary task file: " + path);
+        }
+        count = buffer.getInt(COUNT_OFFSET);
+        capacity = buffer.getInt(CAPACITY_OFFSET);
+        dataEnd = buffer.getInt(DATA_END_OFFSET);
+    }
+
+    /**
+     * Converts a text task file into a new binary store, replacing any existing one.
+     * Lines that cannot be parsed are reported and skipped.
+     *
+     * @param textPath The text task file to read.
+     * @param binaryPath The binary task file to write.
+     * @return The number of tasks converted.
+     * @throws IOException If either file cannot be accessed.
+     */
+    static int convert(Path textPath, Path binaryPath) throws IOException {
+        Files.deleteIfExists(binaryPath);
+        try (BinaryStorage store = open(binaryPath, Storage.Durability.OS_BUFFERED);
+             BufferedReader reader = Files.newBufferedReader(textPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    store.append(Storage.parseTask(line));
+                } catch (KifException e) {
+                    System.err.println("Skipping unconvertible task: " + e.getMessage());
+                }
+            }
+            return store.size();
+        }
+    }
+
+    /**
+     * Returns the number of tasks in the store.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Reads the task at the given position straight from the mapped file.
+     *
+     * @param index The task index (1-based).
+     * @return A new {@code Task} holding the stored values.
+     */
+    Task readTask(int index) {
+        int offset = recordOffset(index);
+        byte flags = buffer.get(offset);
+        Task.TaskType type = Task.TaskType.values()[buffer.get(offset + 1)];
+        offset += 2;
+
+        String description = readString(offset);
+        offset += Integer.BYTES + buffer.getInt(offset);
+
+        Task task = switch (type) {
+            case TODO -> new Task.ToDo(description);
+            case DEADLINE -> new Task.Deadline(description, LocalDate.ofEpochDay(buffer.getLong(offset)));
+            case EVENT -> {
+                String start = readString(offset);
+                String end = readString(offset + Integer.BYTES + buffer.getInt(offset));
+                yield new Task.Event(description, start, end);
+            }
+        };
+        task.isDone = (flags & DONE_FLAG) != 0;
+        return task;
+    }
+
+    /**
+     * Flips the completion flag of the task at the given position in place.
+     *
+     * @param index The task index (1-based).
+     * @param isDone The new completion status.
+     */
+    void setDone(int index, boolean isDone) {
+        int offset = recordOffset(index);
+        byte flags = buffer.get(offset);
+        buffer.put(offset, (byte) (isDone ? flags | DONE_FLAG : flags & ~DONE_FLAG));
+        forceRange(offset, 1);
+    }
+
+    /**
+     * Removes the task at the given position by closing the gap in the index region,
+     * and rewrites the store once deleted records take up half its data.
+     *
+     * @param index The task index (1-based).
+     * @throws IOException If the store cannot be rewritten.
+     */
+    void delete(int index) throws IOException {
+        deletedSize += recordSize(recordOffset(index));
+        for (int i = index; i < count; i++) {
+            buffer.putInt(slotOffset(i - 1), buffer.getInt(slotOffset(i)));
+        }
+        forceRange(slotOffset(index - 1), (count - index) * Integer.BYTES);
+        count--;
+        writeHeader();
+        forceRange(0, HEADER_SIZE);
+
+        if (deletedSize > INITIAL_DATA_SIZE && deletedSize > dataEnd / 2) {
+            rewrite(capacity);
+        }
+    }
+
+    /**
+     * Appends a task to the end of the store.
+     *
+     * @param task The task to append.
+     * @throws IOException If the file cannot be grown.
+     */
+    void append(Task task) throws IOException {
+        byte[] description = task.description.getBytes(StandardCharsets.UTF_8);
+        byte[] start = null;
+        byte[] end = null;
+        int recordSize = 2 + Integer.BYTES + description.length;
+
+        switch (task.type) {
+        case DEADLINE -> recordSize += Long.BYTES;
+        case EVENT -> {
+            Task.Event event = (Task.Event) task;
+            start = event.getStart().getBytes(StandardCharsets.UTF_8);
+            end = event.getEnd().getBytes(StandardCharsets.UTF_8);
+            recordSize += 2 * Integer.BYTES + start.length + end.length;
+        }
+        default -> {
+        }
+        }
+
+        if (count == capacity) {
+            rewrite(capacity * 2);
+        }
+        ensureDataSpace(recordSize);
+
+        int offset = dataStart() + dataEnd;
+        buffer.put(offset, task.isDone ? DONE_FLAG : 0);
+        buffer.put(offset + 1, (byte) task.type.ordinal());
+        int position = writeString(offset + 2, description);
+        switch (task.type) {
+        case DEADLINE -> buffer.putLong(position, ((Task.Deadline) task).getDeadline().toEpochDay());
+        case EVENT -> writeString(writeString(position, start), end);
+        default -> {
+        }
+        }
+
+        buffer.putInt(slotOffset(count), dataEnd);
+        // the record must be on disk before the header that makes it part of the store
+        forceRange(offset, recordSize);
+        forceRange(slotOffset(count), Integer.BYTES);
+        dataEnd += recordSize;
+        count++;
+        writeHeader();
+        forceRange(0, HEADER_SIZE);
+    }
+
+    /**
+     * Forces pending changes to disk and releases the file.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int dataStart() {
+        return HEADER_SIZE + capacity * Integer.BYTES;
+    }
+
+    private int slotOffset(int zeroBasedIndex) {
+        return HEADER_SIZE + zeroBasedIndex * Integer.BYTES;
+    }
+
+    private int recordOffset(int index) {
+        checkIndex(index);
+        return dataStart() + buffer.getInt(slotOffset(index - 1));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 1 || index > count) {
+            throw new IndexOutOfBoundsException("Invalid task index: " + index);
+        }
+    }
+
+    private String readString(int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int writeString(int offset, byte[] bytes) {
+        buffer.putInt(offset, bytes.length);
+        buffer.put(offset + Integer.BYTES, bytes);
+        return offset + Integer.BYTES + bytes.length;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(DATA_END_OFFSET, dataEnd);
+    }
+
+    private void remap(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Binary task file cannot grow past 2 GiB");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void ensureDataSpace(int recordSize) throws IOException {
+        long required = (long) dataStart() + dataEnd + recordSize;
+        if (required > buffer.capacity()) {
+            remap(Math.max(required, 2L * buffer.capacity()));
+        }
+    }
+
+    private int recordSize(int offset) {
+        Task.TaskType type = Task.TaskType.values()[buffer.get(offset + 1)];
+        int end = offset + 2 + Integer.BYTES + buffer.getInt(offset + 2);
+        switch (type) {
+        case DEADLINE -> end += Long.BYTES;
+        case EVENT -> {
+            end += Integer.BYTES + buffer.getInt(end);
+            end += Integer.BYTES + buffer.getInt(end);
+        }
+        default -> {
+        }
+        }
+        return end - offset;
+    }
+
+    private void forceRange(int offset, int length) {
+        if (isForcingChanges && length > 0) {
+            buffer.force(offset, length);
+        }
+    }
+
+    /**
+     * Copies the live records into a new file with room for the given number of tasks,
+     * then renames it over this one and maps it in place of the old file.
+     * Until the rename, a crash leaves the old file as it was.
+     */
+    private void rewrite(int newCapacity) throws IOException {
+        Path rewritePath = Path.of(path + REWRITE_SUFFIX);
+        Files.deleteIfExists(rewritePath);
+        try (BinaryStorage copy = open(rewritePath, Storage.Durability.OS_BUFFERED, newCapacity)) {
+            for (int i = 1; i <= count; i++) {
+                copy.append(readTask(i));
+            }
+        }
+        buffer.force();
+        channel.close();
+        Files.move(rewritePath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map();
+        deletedSize = 0;
+    }
+}
@@ -0,0 +1,72 @@
+package kif;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Adds and checks the checksums that end each record of the task file and the journal.
+ *
+ * <p>A record is its text followed by the reserved keyword, {@code #} and the CRC-32C of the text's
+ * UTF-8 bytes as 8 hex digits. A record cut short by a crash, or changed on disk, no longer matches
+ * its checksum. Lines written before checksums were added have no suffix and are read as they are.
+ */
+final class Checksums {
+
+    private static final String MARKER = Storage.KEYWORD + "#";
+    private static final int DIGITS = 8;
+    private static final int SUFFIX_LENGTH = MARKER.length() + DIGITS;
+
+    private Checksums() {
+    }
+
+    /**
+     * Appends the checksum of a record's text to it.
+     *
+     * @param text The text of the record.
+     * @return The record as it is written to the file.
+     */
+    static String append(String text) {
+        String digits = Integer.toHexString((int) compute(text));
+        return text + MARKER + "0".repeat(DIGITS - digits.length()) + digits;
+    }
+
+    /**
+     * Checks whether a line ends with a checksum, whether or not it matches.
+     *
+     * @param line The line as read from the file.
+     * @return Whether the line has a checksum.
+     */
+    static boolean isPresent(String line) {
+        return line.length() >= SUFFIX_LENGTH && line.startsWith(MARKER, line.length() - SUFFIX_LENGTH);
+    }
+
+    /**
+     * Checks a line's checksum and removes it.
+     *
+     * @param line The line as read from the file.
+     * @return The text of the record, or the line itself if it has no checksum.
+     * @throws KifException If the line has a checksum that does not match its text.
+     */
+    static String strip(String line) throws KifException {
+        if (!isPresent(line)) {
+            return line;
+        }
+        String text = line.substring(0, line.length() - SUFFIX_LENGTH);
+        long expected;
+        try {
+            expected = Long.parseLong(line.substring(line.length() - DIGITS), 16);
+        } catch (NumberFormatException e) {
+            throw new KifException("Invalid checksum: " + line);
+        }
+        if (expected != compute(text)) {
+            throw new KifException("Checksum mismatch: " + line);
+        }
+        return text;
+    }
+
+    private static long compute(String text) {
+        CRC32C crc = new CRC32C();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
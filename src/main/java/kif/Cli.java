@@ -0,0 +1,79 @@
+package kif;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs Kif in the console, without loading JavaFX, so that it starts in about the time it takes
+ * to load the tasks.
+ *
+ * <p>With no arguments, the saved tasks are listed as in the GUI, then commands are read from
+ * standard input one per line until {@code bye} or the end of input, and each reply is printed as
+ * soon as it is ready. With arguments, they are run as a single command and Kif exits after
+ * printing the reply, which suits calling Kif from scripts. Only the GUI's own classes need JavaFX,
+ * and none of them are used here.
+ */
+public class Cli {
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the console interface.
+     *
+     * @param args The words of a single command to run, or none to read commands from standard input.
+     * @return The exit status.
+     */
+    static int run(String[] args) {
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            Kif.loadTasks();
+            if (args.length > 0) {
+                try (Session session = new Session()) {
+                    printReply(output, Kif.getResponse(session, String.join(" ", args)));
+                }
+            } else {
+                runInteractively(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), output);
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error running Kif: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Replies to each command read until {@code bye} or the end of input.
+     *
+     * @param commands The commands, one per line.
+     * @param output Where to print the replies.
+     * @throws IOException If the commands cannot be read or the replies printed.
+     */
+    static void runInteractively(BufferedReader commands, Writer output) throws IOException {
+        try (Session session = new Session()) {
+            boolean[] hasSaidBye = new boolean[1];
+            session.exitHook = () -> hasSaidBye[0] = true;
+
+            printReply(output, Messages.getIntroductionMessage() + System.lineSeparator());
+            printReply(output, Kif.getResponse(session, "list"));
+            String line;
+            while (!hasSaidBye[0] && (line = commands.readLine()) != null) {
+                if (!line.isBlank()) {
+                    printReply(output, Kif.getResponse(session, line));
+                }
+            }
+        }
+    }
+
+    private static void printReply(Writer output, String reply) throws IOException {
+        output.write(reply);
+        output.write(System.lineSeparator());
+        output.flush();
+    }
+}
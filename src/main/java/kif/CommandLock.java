@@ -0,0 +1,74 @@
+package kif;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The lock held by every command that reads or changes a task list or its storage.
+ *
+ * <p>Releasing the lock publishes each task list changed while it was held, so that the list can be
+ * read from its published view without the lock. The lock also keeps a generation count, which is odd
+ * while the lock is held and goes up whenever it is taken or released, so that a reader working without
+ * the lock can tell whether a command may have changed the storage while it read from it.
+ */
+class CommandLock extends ReentrantLock {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile long generation;
+
+    @Override
+    public void lock() {
+        super.lock();
+        enter();
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        super.lockInterruptibly();
+        enter();
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (!super.tryLock()) {
+            return false;
+        }
+        enter();
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!super.tryLock(timeout, unit)) {
+            return false;
+        }
+        enter();
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (getHoldCount() == 1) {
+            try {
+                TaskList.publishChanged();
+            } finally {
+                generation++;
+            }
+        }
+        super.unlock();
+    }
+
+    /**
+     * Returns the generation count, which is odd while a command holds the lock.
+     */
+    long generation() {
+        return generation;
+    }
+
+    private void enter() {
+        if (getHoldCount() == 1) {
+            generation++;
+        }
+    }
+}
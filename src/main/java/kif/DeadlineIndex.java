@@ -0,0 +1,76 @@
+package kif;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An index of pending deadlines ordered by due date.
+ * Only deadlines that are not done are indexed, so range queries return exactly the
+ * outstanding tasks in O(log N + k).
+ */
+class DeadlineIndex {
+
+    private final NavigableMap<LocalDate, IdSet> deadlines = new TreeMap<>();
+
+    /**
+     * Indexes the task if it is a deadline that is not done yet.
+     *
+     * @param task The task to index.
+     */
+    void add(Task task) {
+        if (task instanceof Task.Deadline deadline && !deadline.isDone) {
+            deadlines.computeIfAbsent(deadline.getDeadline(), date -> new IdSet()).add(task.id);
+        }
+    }
+
+    /**
+     * Removes the task from the index if it is a deadline.
+     *
+     * @param task The task to remove.
+     */
+    void remove(Task task) {
+        if (!(task instanceof Task.Deadline deadline)) {
+            return;
+        }
+        IdSet ids = deadlines.get(deadline.getDeadline());
+        if (ids == null) {
+            return;
+        }
+        ids.remove(task.id);
+        if (ids.isEmpty()) {
+            deadlines.remove(deadline.getDeadline());
+        }
+    }
+
+    /**
+     * Removes every task from the index.
+     */
+    void clear() {
+        deadlines.clear();
+    }
+
+    /**
+     * Finds the pending deadlines due within a date range.
+     *
+     * @param from The first date of the range, inclusive.
+     * @param to The last date of the range, inclusive.
+     * @return The ids of the matching tasks.
+     */
+    int[] dueBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return new int[0];
+        }
+        return IdSet.union(deadlines.subMap(from, true, to, true).values());
+    }
+
+    /**
+     * Finds the pending deadlines due before a date.
+     *
+     * @param date The date, exclusive.
+     * @return The ids of the matching tasks.
+     */
+    int[] dueBefore(LocalDate date) {
+        return IdSet.union(deadlines.headMap(date, false).values());
+    }
+}
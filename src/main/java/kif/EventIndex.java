@@ -0,0 +1,244 @@
+package kif;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An interval tree over the time spans of events, so that the events overlapping a given span
+ * are found in O(log N + k) instead of by scanning every event.
+ *
+ * <p>The tree is a treap ordered by span start, where each node also records the latest span end
+ * in its subtree. Spans are half-open and measured in minutes; an event given only as dates runs
+ * from the start of its first day to the end of its last day.
+ * Events whose start or end could not be parsed are not indexed.
+ */
+class EventIndex {
+
+    private final Random random = new Random();
+    private Node root;
+
+    private static class Node {
+        private final long start;
+        private final long end;
+        private final int id;
+        private final int priority;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(long start, long end, int id, int priority) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        int compareTo(long otherStart, int otherId) {
+            int byStart = Long.compare(start, otherStart);
+            return byStart != 0 ? byStart : Integer.compare(id, otherId);
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null) {
+                maxEnd = Math.max(maxEnd, left.maxEnd);
+            }
+            if (right != null) {
+                maxEnd = Math.max(maxEnd, right.maxEnd);
+            }
+        }
+    }
+
+    /**
+     * Indexes the task if it is an event with a valid time span.
+     *
+     * @param task The task to index.
+     */
+    void add(Task task) {
+        if (task instanceof Task.Event event && hasSpan(event)) {
+            long start = toStartMinute(event.getStartTime());
+            root = insert(root, new Node(start, toEndMinute(event.getEndTime(), start), task.id, random.nextInt()));
+        }
+    }
+
+    /**
+     * Removes the task from the index if it is an indexed event.
+     *
+     * @param task The task to remove.
+     */
+    void remove(Task task) {
+        if (task instanceof Task.Event event && hasSpan(event)) {
+            root = remove(root, toStartMinute(event.getStartTime()), task.id);
+        }
+    }
+
+    /**
+     * Removes every event from the index.
+     */
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Finds the events taking place on a date.
+     *
+     * @param date The date.
+     * @return The ids of the matching events.
+     */
+    int[] overlapping(LocalDate date) {
+        List<Node> matches = new ArrayList<>();
+        long start = toStartMinute(date);
+        collectOverlapping(root, start, toEndMinute(date, start), matches);
+        return matches.stream().mapToInt(node -> node.id).toArray();
+    }
+
+    /**
+     * Finds every pair of events whose spans overlap.
+     *
+     * @return Pairs of event ids, each with the earlier-starting event first.
+     */
+    List<int[]> clashingPairs() {
+        List<Node> events = new ArrayList<>();
+        collectInOrder(root, events);
+
+        List<int[]> pairs = new ArrayList<>();
+        List<Node> overlaps = new ArrayList<>();
+        for (Node event : events) {
+            overlaps.clear();
+            collectOverlapping(root, event.start, event.end, overlaps);
+            for (Node other : overlaps) {
+                if (other.compareTo(event.start, event.id) > 0) {
+                    pairs.add(new int[]{event.id, other.id});
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static boolean hasSpan(Task.Event event) {
+        if (event.getStartTime() == null || event.getEndTime() == null) {
+            return false;
+        }
+        long start = toStartMinute(event.getStartTime());
+        return toEndMinute(event.getEndTime(), start) > start;
+    }
+
+    private static long toStartMinute(Temporal time) {
+        LocalDateTime dateTime = time instanceof LocalDate date ? date.atStartOfDay() : (LocalDateTime) time;
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    /**
+     * Converts the end of a span to minutes, covering the whole day for a date and
+     * at least one minute for an instant.
+     */
+    private static long toEndMinute(Temporal time, long startMinute) {
+        if (time instanceof LocalDate date) {
+            return toStartMinute(date.plusDays(1));
+        }
+        long endMinute = toStartMinute(time);
+        return endMinute == startMinute ? endMinute + 1 : endMinute;
+    }
+
+    private Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (newNode.compareTo(node.start, node.id) < 0) {
+            node.left = insert(node.left, newNode);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node remove(Node node, long start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = node.compareTo(start, id);
+        if (comparison > 0) {
+            node.left = remove(node.left, start, id);
+        } else if (comparison < 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    /**
+     * Collects the nodes whose spans overlap the half-open span from {@code start} to {@code end}.
+     * Subtrees that end too early, or start too late, are skipped.
+     */
+    private void collectOverlapping(Node node, long start, long end, List<Node> matches) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collectOverlapping(node.left, start, end, matches);
+        if (node.start < end) {
+            if (node.end > start) {
+                matches.add(node);
+            }
+            collectOverlapping(node.right, start, end, matches);
+        }
+    }
+
+    private void collectInOrder(Node node, List<Node> nodes) {
+        if (node == null) {
+            return;
+        }
+        collectInOrder(node.left, nodes);
+        nodes.add(node);
+        collectInOrder(node.right, nodes);
+    }
+}
@@ -0,0 +1,290 @@
+package kif;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends lines to a file through one long-lived channel, coalescing them into grouped writes.
+ *
+ * <p>Lines are collected in a buffer and written in groups. How soon they reach the file depends on the
+ * durability. {@code PER_COMMAND} and {@code BATCHED} both force a line to the device before
+ * {@code append} returns; under {@code BATCHED}, lines appended while another group is being forced wait
+ * for that force to finish and are then forced together, as one group. {@code OS_BUFFERED} returns at
+ * once and leaves a background flusher to write whatever has gathered when the commit window closes,
+ * or as soon as the batch is full, without forcing it. One flusher thread serves every writer, so
+ * that loading many workspaces does not start a thread for each.
+ *
+ * <p>A group that the flusher fails to write is kept and retried, and the failure is reported by the
+ * next call to {@code append} or {@code flush}. A caller that waited for its group is told of the failure
+ * directly, and its lines are dropped, since it has not been told they were saved.
+ */
+class GroupCommitWriter implements AutoCloseable {
+
+    private static final long COMMIT_WINDOW_MILLIS = Long.getLong("kif.commit.window", 10);
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final int MAX_BATCH_RECORDS = Integer.getInteger("kif.commit.batch", 256);
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kif-group-commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FileChannel channel;
+    private final Storage.Durability durability;
+    private final Object channelLock = new Object();
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private int pendingRecords;
+    // completed once the pending lines have been written, or have failed to be
+    private CompletableFuture<Void> pendingGroup = new CompletableFuture<>();
+    private boolean isClosed;
+    // a failed background write, not yet reported to a caller
+    private IOException failure;
+    // set when a failed write stopped partway through a line, so the next write must start a new one
+    private boolean isLineTorn;
+
+    /**
+     * Opens the file for appending, creating it if it does not exist. If the file does not end with
+     * a newline, as when a crash cut the last append short, one is added so that new lines start afresh.
+     *
+     * @param path The file to append to.
+     * @param durability When appended lines must reach the file and the device.
+     * @throws IOException If the file cannot be opened.
+     */
+    GroupCommitWriter(Path path, Storage.Durability durability) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                durability);
+        if (!endsWithNewline(path)) {
+            channel.write(ByteBuffer.wrap(LINE_SEPARATOR));
+        }
+    }
+
+    /**
+     * Appends to a channel that is already open for appending.
+     *
+     * @param channel The channel to append to; it is closed along with the writer.
+     * @param durability When appended lines must reach the file and the device.
+     */
+    GroupCommitWriter(FileChannel channel, Storage.Durability durability) {
+        this.channel = channel;
+        this.durability = durability;
+    }
+
+    /**
+     * Checks whether a file is empty or ends with a newline.
+     *
+     * @param path The file to check.
+     * @return Whether the file's last line is complete.
+     * @throws IOException If the file cannot be read.
+     */
+    static boolean endsWithNewline(Path path) throws IOException {
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = reader.size();
+            if (size == 0) {
+                return true;
+            }
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            reader.read(lastByte, size - 1);
+            return lastByte.get(0) == '\n';
+        }
+    }
+
+    /**
+     * Appends a line, followed by a line separator. Unless the durability is {@code OS_BUFFERED},
+     * the line has been forced to the device by the time this returns.
+     *
+     * @param line The line to append.
+     * @throws IOException If the line, or an earlier grouped write, could not be written.
+     */
+    void append(String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        CompletableFuture<Void> group;
+        boolean isBatchFull;
+        synchronized (this) {
+            throwFailure();
+            if (isClosed) {
+                throw new IOException("Writer is closed");
+            }
+            pending = ensureRemaining(pending, bytes.length + LINE_SEPARATOR.length);
+            pending.put(bytes).put(LINE_SEPARATOR);
+            if (pendingRecords++ == 0 && durability == Storage.Durability.OS_BUFFERED) {
+                // the first line of a group opens the commit window
+                flusher.schedule(this::flushGroup, COMMIT_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            group = pendingGroup;
+            isBatchFull = pendingRecords >= MAX_BATCH_RECORDS;
+        }
+
+        if (durability != Storage.Durability.OS_BUFFERED) {
+            commit(group);
+        } else if (isBatchFull) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns once the given group has been forced, forcing it here unless another caller already has.
+     * Lines appended while this waits for a force in progress are forced along with it.
+     */
+    private void commit(CompletableFuture<Void> group) throws IOException {
+        synchronized (channelLock) {
+            if (!group.isDone()) {
+                flush();
+            }
+        }
+        try {
+            group.join();
+        } catch (CompletionException e) {
+            throw new IOException("Error writing grouped records: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Writes every pending line to the file, forcing it to the device unless the durability is
+     * {@code OS_BUFFERED}.
+     *
+     * @throws IOException If the lines cannot be written now, or an earlier grouped write failed.
+     */
+    void flush() throws IOException {
+        synchronized (channelLock) {
+            ByteBuffer batch;
+            CompletableFuture<Void> group;
+            int records;
+            synchronized (this) {
+                if (pendingRecords == 0) {
+                    throwFailure();
+                    return;
+                }
+                failure = null;
+                batch = pending;
+                pending = spare;
+                spare = null;
+                records = pendingRecords;
+                pendingRecords = 0;
+                group = pendingGroup;
+                pendingGroup = new CompletableFuture<>();
+            }
+
+            batch.flip();
+            int size = batch.remaining();
+            try {
+                if (isLineTorn) {
+                    channel.write(ByteBuffer.wrap(LINE_SEPARATOR));
+                    isLineTorn = false;
+                }
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (durability != Storage.Durability.OS_BUFFERED) {
+                    channel.force(false);
+                }
+            } catch (IOException | RuntimeException e) {
+                keepFailedBatch(batch, records, size);
+                group.completeExceptionally(e);
+                throw e;
+            }
+
+            Metrics.addBytesWritten(size);
+            batch.clear();
+            synchronized (this) {
+                spare = batch;
+            }
+            group.complete(null);
+        }
+    }
+
+    /**
+     * Puts the unwritten part of a failed batch back in front of the pending lines so that it is retried,
+     * unless its callers are waiting for it, in which case it is dropped as they are told it failed.
+     */
+    private void keepFailedBatch(ByteBuffer batch, int records, int size) {
+        synchronized (this) {
+            if (durability != Storage.Durability.OS_BUFFERED) {
+                isLineTorn = batch.position() > 0 && batch.hasRemaining();
+                batch.clear();
+                spare = batch;
+                return;
+            }
+            Metrics.addBytesWritten(batch.position());
+            batch.compact();
+            pending.flip();
+            batch = ensureRemaining(batch, pending.remaining());
+            batch.put(pending);
+            pending.clear();
+            spare = pending;
+            pending = batch;
+            pendingRecords += records;
+        }
+    }
+
+    /**
+     * Writes any pending lines and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the group whose commit window has closed, unless a full batch or closing the writer already has.
+     * Should the write fail, the group is kept and tried again a little later.
+     */
+    private void flushGroup() {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            synchronized (this) {
+                if (failure == null) {
+                    System.err.println("Error writing grouped records: " + e.getMessage());
+                }
+                failure = e;
+            }
+            flusher.schedule(this::flushGroup, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void throwFailure() throws IOException {
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw new IOException("Error writing grouped records; they will be retried: " + e.getMessage(), e);
+        }
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int required) {
+        if (buffer.remaining() >= required) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + required));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+}
@@ -0,0 +1,237 @@
+package kif;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps the undo and redo history of the user's commands.
+ *
+ * <p>Each entry records the command and the id of the task it touched, plus the task in its
+ * stored text form when the command can only be reversed by recreating the task.
+ * Only the most recent entries are held in memory; older ones are spilled to a temporary file
+ * and read back as the user undoes past them. Entries beyond the maximum depth are forgotten.
+ * Closing the history deletes that file, so each history must be closed when its session ends.
+ */
+class History implements AutoCloseable {
+
+    private static final int DEFAULT_MEMORY_CAP = Integer.getInteger("kif.history.memory", 64);
+    private static final int DEFAULT_MAX_DEPTH = Integer.getInteger("kif.history.depth", 10_000);
+
+    /**
+     * Represents a single reversible command.
+     *
+     * @param command The command that was performed.
+     * @param taskId The id of the task it touched.
+     * @param taskLine The task in its stored form, or an empty string if the id is enough to reverse it.
+     */
+    record Entry(Kif.UserCommand command, int taskId, String taskLine) {
+
+        private String encode() {
+            return command + " " + taskId + " " + taskLine;
+        }
+
+        private static Entry decode(String line) {
+            int commandEnd = line.indexOf(' ');
+            int idEnd = line.indexOf(' ', commandEnd + 1);
+            return new Entry(Kif.UserCommand.valueOf(line.substring(0, commandEnd)),
+                    Integer.parseInt(line.substring(commandEnd + 1, idEnd)), line.substring(idEnd + 1));
+        }
+    }
+
+    private final int memoryCap;
+    private final int maxDepth;
+    private final Deque<Entry> undoEntries = new ArrayDeque<>();
+    private final Deque<Entry> redoEntries = new ArrayDeque<>();
+    private final Deque<Long> spilledOffsets = new ArrayDeque<>();
+    private Path spillPath;
+    private RandomAccessFile spillFile;
+
+    /**
+     * Constructs a history with the default limits.
+     */
+    History() {
+        this(DEFAULT_MEMORY_CAP, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Constructs a history.
+     *
+     * @param memoryCap The number of entries kept in memory before older ones are spilled to disk.
+     * @param maxDepth The number of entries kept in total before the oldest are forgotten.
+     */
+    History(int memoryCap, int maxDepth) {
+        assert memoryCap > 0 && maxDepth >= memoryCap : "History limits should be positive and consistent";
+        this.memoryCap = memoryCap;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Records a newly performed command, which clears anything that could be redone.
+     *
+     * @param entry The command to record.
+     */
+    void record(Entry entry) {
+        redoEntries.clear();
+        pushUndo(entry);
+    }
+
+    /**
+     * Removes and returns the most recent command that can be undone.
+     *
+     * @return The command, or null if there is nothing to undo.
+     */
+    Entry popUndo() {
+        Entry entry = peekUndo();
+        if (entry != null) {
+            undoEntries.removeLast();
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the most recent command that can be undone, leaving it in the history.
+     *
+     * @return The command, or null if there is nothing to undo.
+     */
+    Entry peekUndo() {
+        if (undoEntries.isEmpty() && !spilledOffsets.isEmpty()) {
+            undoEntries.addFirst(unspill());
+        }
+        return undoEntries.peekLast();
+    }
+
+    /**
+     * Records a command that has just been undone so that it can be redone.
+     *
+     * @param entry The undone command.
+     */
+    void pushRedo(Entry entry) {
+        redoEntries.addLast(entry);
+        if (redoEntries.size() > memoryCap) {
+            redoEntries.removeFirst();
+        }
+    }
+
+    /**
+     * Removes and returns the most recently undone command.
+     *
+     * @return The command, or null if there is nothing to redo.
+     */
+    Entry popRedo() {
+        return redoEntries.pollLast();
+    }
+
+    /**
+     * Returns the most recently undone command, leaving it in the history.
+     *
+     * @return The command, or null if there is nothing to redo.
+     */
+    Entry peekRedo() {
+        return redoEntries.peekLast();
+    }
+
+    /**
+     * Records a command that has just been redone so that it can be undone again.
+     *
+     * @param entry The redone command.
+     */
+    void pushUndo(Entry entry) {
+        undoEntries.addLast(entry);
+        if (undoEntries.size() > memoryCap) {
+            spill(undoEntries.removeFirst());
+        }
+        if (undoEntries.size() + spilledOffsets.size() > maxDepth) {
+            forgetOldest();
+        }
+    }
+
+    /**
+     * Forgets every recorded command.
+     */
+    void clear() {
+        undoEntries.clear();
+        redoEntries.clear();
+        spilledOffsets.clear();
+        truncateSpillFile(0);
+    }
+
+    /**
+     * Forgets every recorded command and deletes the file holding spilled ones.
+     * The history can still be used afterwards, and starts a new file if it needs one.
+     */
+    @Override
+    public void close() {
+        undoEntries.clear();
+        redoEntries.clear();
+        spilledOffsets.clear();
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            spillFile.close();
+            Files.deleteIfExists(spillPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error deleting spilled command history.", e);
+        } finally {
+            spillFile = null;
+            spillPath = null;
+        }
+    }
+
+    private void forgetOldest() {
+        if (spilledOffsets.isEmpty()) {
+            undoEntries.removeFirst();
+            return;
+        }
+        // the record stays in the file until everything after it is read back
+        spilledOffsets.removeFirst();
+        if (spilledOffsets.isEmpty()) {
+            truncateSpillFile(0);
+        }
+    }
+
+    private void spill(Entry entry) {
+        try {
+            if (spillFile == null) {
+                spillPath = Files.createTempFile("kif-history", ".spill");
+                spillFile = new RandomAccessFile(spillPath.toFile(), "rw");
+            }
+            long offset = spillFile.length();
+            spillFile.seek(offset);
+            spillFile.write((entry.encode() + "\n").getBytes(StandardCharsets.UTF_8));
+            spilledOffsets.addLast(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error spilling command history.", e);
+        }
+    }
+
+    private Entry unspill() {
+        long offset = spilledOffsets.removeLast();
+        try {
+            byte[] bytes = new byte[(int) (spillFile.length() - offset)];
+            spillFile.seek(offset);
+            spillFile.readFully(bytes);
+            truncateSpillFile(spilledOffsets.isEmpty() ? 0 : offset);
+            return Entry.decode(new String(bytes, 0, bytes.length - 1, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading spilled command history.", e);
+        }
+    }
+
+    private void truncateSpillFile(long length) {
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            spillFile.setLength(length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error truncating spilled command history.", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package kif;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A sorted set of task ids kept in a plain array to avoid boxing.
+ * Ids are mostly added in increasing order, which makes insertion an append.
+ */
+class IdSet {
+    private int[] ids = new int[2];
+    private int size;
+
+    /**
+     * Adds an id to the set if it is not already present.
+     *
+     * @param id The id to add.
+     */
+    void add(int id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+
+    /**
+     * Removes an id from the set if it is present.
+     *
+     * @param id The id to remove.
+     */
+    void remove(int id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Collects the ids of several sets into one sorted array, which may hold duplicates.
+     *
+     * @param sets The sets to combine.
+     * @return The ids of every set, in ascending order.
+     */
+    static int[] union(Collection<IdSet> sets) {
+        int total = 0;
+        for (IdSet set : sets) {
+            total += set.size;
+        }
+        int[] union = new int[total];
+        int offset = 0;
+        for (IdSet set : sets) {
+            System.arraycopy(set.ids, 0, union, offset, set.size);
+            offset += set.size;
+        }
+        Arrays.sort(union);
+        return union;
+    }
+
+    /**
+     * Returns the ids in ascending order.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
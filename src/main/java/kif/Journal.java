@@ -0,0 +1,315 @@
+package kif;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * An append-only write-ahead journal of task mutations layered over the {@code tasks.txt} snapshot.
+ * Each mutation costs one small append; once the journal grows past a size threshold it is
+ * rotated out and folded into a fresh snapshot on a background thread.
+ *
+ * <p>Records are single lines of the form {@code <seq> <OPERATION> <payload>}, where the payload
+ * is the formatted task for {@code ADD} and the 1-based task position otherwise.
+ * Sequence numbers let replay skip records that were carried over twice during recovery.
+ * Each record ends with a checksum, and replay skips records that fail it. A record cut short by a crash
+ * is cut off the end of the journal before anything more is appended.
+ */
+class Journal {
+
+    /**
+     * Represents the operations recorded in the journal.
+     */
+    enum Operation { ADD, MARK, UNMARK, DELETE }
+
+    private final Path snapshotPath;
+    private final Path snapshotTempPath;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final long compactionThreshold;
+    private Storage.Durability durability;
+
+    private GroupCommitWriter writer;
+    private long journalSize;
+    private long nextSeq = 1;
+    private Thread compactionThread;
+    private boolean hasStaleCompaction;
+
+    /**
+     * Constructs a journal for the given snapshot file.
+     *
+     * @param snapshotPath The snapshot file the journal is layered over.
+     * @param journalPath The journal file to append to.
+     * @param compactionThreshold The journal size in bytes past which it is compacted.
+     * @param durability When appended records must reach the disk.
+     */
+    Journal(String snapshotPath, String journalPath, long compactionThreshold, Storage.Durability durability) {
+        this.snapshotPath = Path.of(snapshotPath);
+        this.snapshotTempPath = Path.of(snapshotPath + ".tmp");
+        this.journalPath = Path.of(journalPath);
+        this.compactingPath = Path.of(journalPath + ".compacting");
+        this.compactionThreshold = compactionThreshold;
+        this.durability = durability;
+    }
+
+    /**
+     * Finishes or discards a snapshot left behind by an interrupted compaction.
+     * Must be called before the snapshot file is read.
+     *
+     * @throws IOException If the snapshot files cannot be accessed.
+     */
+    synchronized void recoverSnapshot() throws IOException {
+        if (Files.exists(compactingPath)) {
+            // the compaction never reached its commit point, so the old snapshot is still current
+            Files.deleteIfExists(snapshotTempPath);
+            hasStaleCompaction = true;
+        } else if (Files.exists(snapshotTempPath)) {
+            Files.move(snapshotTempPath, snapshotPath,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Replays every journalled record, oldest first.
+     *
+     * <p>Every record is written with its line separator, so a last line without one was cut short
+     * by a crash unless its checksum shows it is whole. Such a torn record is not replayed, and is cut
+     * off the file so that later records start on a line of their own.
+     *
+     * @param handler Receives the operation and payload of each record.
+     * @throws IOException If the journal cannot be read or its torn tail cannot be removed.
+     */
+    synchronized void replay(BiConsumer<Operation, String> handler) throws IOException {
+        long lastSeq = 0;
+        for (Path path : List.of(compactingPath, journalPath)) {
+            if (!Files.exists(path)) {
+                continue;
+            }
+            byte[] bytes = Files.readAllBytes(path);
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                int textEnd = lineEnd > lineStart && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                String line = new String(bytes, lineStart, textEnd - lineStart, StandardCharsets.UTF_8);
+                if (lineEnd == bytes.length) {
+                    if (!hasValidChecksum(line)) {
+                        System.err.println("Discarding incomplete journal record: " + line);
+                        truncate(path, lineStart);
+                        break;
+                    }
+                    Files.writeString(path, System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+                }
+                lastSeq = replayRecord(line, lastSeq, handler);
+                lineStart = lineEnd + 1;
+            }
+        }
+        nextSeq = lastSeq + 1;
+    }
+
+    /**
+     * Passes a record to the handler unless it is corrupt or was already replayed.
+     *
+     * @return The sequence number of the last record replayed.
+     */
+    private static long replayRecord(String line, long lastSeq, BiConsumer<Operation, String> handler) {
+        String record;
+        try {
+            record = Checksums.strip(line);
+        } catch (KifException e) {
+            System.err.println("Skipping corrupt journal record: " + line);
+            return lastSeq;
+        }
+        int seqEnd = record.indexOf(' ');
+        int opEnd = record.indexOf(' ', seqEnd + 1);
+        if (seqEnd < 0 || opEnd < 0) {
+            System.err.println("Skipping malformed journal record: " + line);
+            return lastSeq;
+        }
+        long seq;
+        Operation operation;
+        try {
+            seq = Long.parseLong(record.substring(0, seqEnd));
+            operation = Operation.valueOf(record.substring(seqEnd + 1, opEnd));
+        } catch (IllegalArgumentException e) {
+            // a bad sequence number or operation name
+            System.err.println("Skipping malformed journal record: " + line);
+            return lastSeq;
+        }
+        if (seq <= lastSeq) {
+            return lastSeq;
+        }
+        handler.accept(operation, record.substring(opEnd + 1));
+        return seq;
+    }
+
+    private static boolean hasValidChecksum(String line) {
+        if (!Checksums.isPresent(line)) {
+            return false;
+        }
+        try {
+            Checksums.strip(line);
+            return true;
+        } catch (KifException e) {
+            return false;
+        }
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Appends a single record to the journal.
+     *
+     * @param operation The operation performed.
+     * @param payload The formatted task or the 1-based task position.
+     * @throws IOException If the record cannot be written.
+     */
+    synchronized void append(Operation operation, String payload) throws IOException {
+        if (writer == null) {
+            openWriter();
+        }
+        String record = Checksums.append(nextSeq++ + " " + operation + " " + payload);
+        writer.append(record);
+        journalSize += record.length() + System.lineSeparator().length();
+    }
+
+    /**
+     * Selects how soon appended records must reach the disk, from the next record on.
+     *
+     * @param newDurability The durability to use.
+     * @throws IOException If records waiting to be grouped cannot be written.
+     */
+    synchronized void setDurability(Storage.Durability newDurability) throws IOException {
+        close();
+        durability = newDurability;
+    }
+
+    /**
+     * Writes out any records still waiting to be grouped and closes the journal file.
+     *
+     * @throws IOException If the records cannot be written.
+     */
+    synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Returns whether the journal has outgrown its threshold, or an earlier compaction was left
+     * unfinished, and no compaction is in progress.
+     */
+    synchronized boolean shouldCompact() {
+        return (journalSize >= compactionThreshold || hasStaleCompaction) && !isCompacting();
+    }
+
+    /**
+     * Rotates the journal out and writes the given snapshot in the background.
+     * The snapshot must reflect every record appended so far.
+     *
+     * @param snapshot Supplies the formatted task lines; invoked on the compaction thread.
+     * @throws IOException If the journal cannot be rotated.
+     */
+    synchronized void compact(Supplier<List<String>> snapshot) throws IOException {
+        if (isCompacting()) {
+            return;
+        }
+        rotate();
+        compactionThread = new Thread(() -> writeSnapshot(snapshot), "kif-journal-compaction");
+        compactionThread.start();
+    }
+
+    /**
+     * Blocks until any running compaction has finished.
+     */
+    void awaitCompaction() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = compactionThread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    private boolean isCompacting() {
+        return compactionThread != null && compactionThread.isAlive();
+    }
+
+    private void openWriter() throws IOException {
+        writer = new GroupCommitWriter(journalPath, durability);
+        journalSize = Files.size(journalPath);
+    }
+
+    /**
+     * Moves the active journal's records into the compacting journal and starts an empty one.
+     * A compacting journal left over from a failed compaction is extended rather than replaced;
+     * should this be interrupted, replay drops the duplicated records by sequence number.
+     */
+    private void rotate() throws IOException {
+        close();
+
+        if (!Files.exists(journalPath)) {
+            Files.createFile(journalPath);
+        }
+        if (!Files.exists(compactingPath)) {
+            Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            try (FileChannel out = FileChannel.open(compactingPath, StandardOpenOption.APPEND);
+                 FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+                in.transferTo(0, in.size(), out);
+                out.force(true);
+            }
+            Files.delete(journalPath);
+        }
+        openWriter();
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and commits it by deleting the compacting journal.
+     */
+    private void writeSnapshot(Supplier<List<String>> snapshot) {
+        try {
+            try (FileChannel channel = FileChannel.open(snapshotTempPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                for (String line : snapshot.get()) {
+                    out.write(line);
+                    out.write(System.lineSeparator());
+                }
+                out.flush();
+                channel.force(true);
+            }
+            // commit point: once the compacting journal is gone the temporary snapshot is authoritative
+            Files.delete(compactingPath);
+            Files.move(snapshotTempPath, snapshotPath,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                hasStaleCompaction = false;
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                hasStaleCompaction = true;
+            }
+            System.err.println("Error compacting task journal: " + e.getMessage());
+        }
+    }
+}
@@ -1,13 +1,56 @@
 package kif;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 /**
  * Handles the chatbot's interaction with the user.
  * Also includes methods to start up, and end the interaction.
+ *
+ * <p>Commands may arrive from several sessions at once. Every command that reads or changes the
+ * task list or storage holds the command lock, except {@code list}, which reads the view of the list
+ * published when the lock was last released, so that it neither waits for nor holds up a writer. It only
+ * takes the lock if a command changed the storage while it was reading tasks not yet loaded from it.
+ * {@code stats} reads only counters, so it needs no lock either.
+ * Each command runs against the workspace its session has chosen, bound to the running thread and
+ * pinned so that it stays loaded until the command has finished.
  */
 public class Kif {
 
-    static UserCommand previousCommand;
-    static Task previousTask;
+    /** The session of the GUI, used when no other session is given. */
+    static final Session defaultSession = new Session();
+
+    /** Guards the task list, its indexes and storage. */
+    static final CommandLock commandLock = new CommandLock();
+
+    private static final String DEFAULT_WORKSPACE_ROOT =
+            Path.of(System.getProperty("kif.data", ""), "workspaces").toString();
+
+    /** The named workspaces, kept under the data directory unless {@code kif.workspaces} names another. */
+    static final WorkspaceRegistry workspaces = new WorkspaceRegistry(
+            Path.of(System.getProperty("kif.workspaces", DEFAULT_WORKSPACE_ROOT)), WorkspaceRegistry.DEFAULT_CAPACITY);
+
+    // a single writer thread runs commands one at a time, in the order they were submitted
+    private static final ExecutorService commandExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kif-commands");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+
+    // whether every workspace, including ones loaded later, keeps its changes in memory until flushed
+    private static boolean isDeferringWrites;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(Kif::closeAllWorkspaces, "kif-shutdown"));
+    }
 
     /**
      * Enum representing possible user commands.
@@ -22,145 +65,420 @@ public class Kif {
         DELETE,
         BYE,
         UNDO,
+        REDO,
+        FIND,
+        DUE,
+        OVERDUE,
+        ON,
+        CLASHES,
+        STATS,
+        WORKSPACE,
     }
 
     /**
-     * Undoes the previous user command if possible.
+     * Undoes the most recent user command that has not been undone yet, if any.
+     * Commands on tasks that another session has since deleted can no longer be undone, so they
+     * are dropped and the command before them is undone instead. A command stays in the history
+     * until it has been undone, so one that fails can be tried again.
      *
+     * @param session The session whose command to undo.
      * @return A response message indicating the undo result.
      * @throws KifException If an error occurs while undoing the command.
      */
-    static String undoPrevCommand() throws KifException {
-        if (previousCommand == null || previousTask == null) {
-            return Ui.getCannotUndoMessage();
+    static String undoPrevCommand(Session session) throws KifException {
+        History.Entry entry;
+        int index;
+        while (true) {
+            entry = session.history.peekUndo();
+            if (entry == null) {
+                return Messages.getCannotUndoMessage();
+            }
+            index = Task.getTaskIndexById(entry.taskId());
+            if (index >= 0 || entry.command() == UserCommand.DELETE) {
+                break;
+            }
+            session.history.popUndo();
         }
 
-        return switch (previousCommand) {
-            case MARK -> Task.unmarkTask(Task.getTaskIndex(previousTask));
-            case UNMARK -> Task.markTask(Task.getTaskIndex(previousTask));
-            case DEADLINE, TODO, EVENT -> Task.deleteTask(Task.getTaskIndex(previousTask));
-            case DELETE -> restoreDeletedTask();
-            default -> Ui.getCannotUndoMessage();
+        String result = switch (entry.command()) {
+            case MARK -> Task.unmarkTask(index);
+            case UNMARK -> Task.markTask(index);
+            case DEADLINE, TODO, EVENT -> Task.deleteTask(index);
+            case DELETE -> restoreDeletedTask(entry);
+            default -> Messages.getCannotUndoMessage();
         };
+        session.history.popUndo();
+        session.history.pushRedo(entry);
+        return result;
     }
 
     /**
-     * Restores a previously deleted task.
+     * Redoes the most recently undone user command, if any, dropping commands on tasks
+     * that have since been deleted as {@link #undoPrevCommand(Session)} does.
      *
-     * @return A response message indicating the restored task or an error message.
-     * @throws KifException If an error occurs while restoring the task.
+     * @param session The session whose command to redo.
+     * @return A response message indicating the redo result.
+     * @throws KifException If an error occurs while redoing the command.
      */
-    private static String restoreDeletedTask() throws KifException {
-        assert previousTask != null : "Previous task should not be null when restoring";
-
-        Task restoredTask;
-
-        if (previousTask instanceof Task.Deadline) {
-            restoredTask = Task.Deadline.create((Task.Deadline) previousTask);
-        } else if (previousTask instanceof Task.ToDo) {
-            restoredTask = Task.ToDo.create((Task.ToDo) previousTask);
-        } else if (previousTask instanceof Task.Event) {
-            restoredTask = Task.Event.create((Task.Event) previousTask);
-        } else {
-            return Ui.getCannotUndoMessage();
+    static String redoNextCommand(Session session) throws KifException {
+        History.Entry entry;
+        int index;
+        while (true) {
+            entry = session.history.peekRedo();
+            if (entry == null) {
+                return Messages.getCannotRedoMessage();
+            }
+            index = Task.getTaskIndexById(entry.taskId());
+            boolean isCreation = entry.command() == UserCommand.DEADLINE
+                    || entry.command() == UserCommand.TODO || entry.command() == UserCommand.EVENT;
+            if (index >= 0 || isCreation) {
+                break;
+            }
+            session.history.popRedo();
         }
 
-        if (previousTask.isDone) {
-            Task.markTask(Task.getTaskIndex(restoredTask));
-        }
+        String result = switch (entry.command()) {
+            case MARK -> Task.markTask(index);
+            case UNMARK -> Task.unmarkTask(index);
+            case DEADLINE, TODO, EVENT -> restoreDeletedTask(entry);
+            case DELETE -> Task.deleteTask(index);
+            default -> Messages.getCannotRedoMessage();
+        };
+        session.history.popRedo();
+        session.history.pushUndo(entry);
+        return result;
+    }
+
+    /**
+     * Recreates a task from its recorded form, keeping its original id
+     * so that older history entries still refer to it.
+     *
+     * @param entry The history entry holding the task.
+     * @return A response message indicating the restored task.
+     * @throws KifException If the recorded task cannot be parsed.
+     */
+    private static String restoreDeletedTask(History.Entry entry) throws KifException {
+        assert !entry.taskLine().isEmpty() : "Recorded task should not be empty when restoring";
 
+        Task restoredTask = Storage.parseTask(entry.taskLine());
+        restoredTask.id = entry.taskId();
+        Storage.writeTask(restoredTask);
         return Task.createTaskMsg(restoredTask);
     }
 
     /**
-     * Processes the user message and returns an appropriate response.
+     * Processes the user message in the GUI's session and returns an appropriate response.
      *
      * @param userMessage The message input by the user.
      * @return The chatbot's response based on the user's command.
      */
     public static String getResponse(String userMessage) {
+        return getResponse(defaultSession, userMessage);
+    }
+
+    /**
+     * Processes the user message and returns an appropriate response.
+     * Safe to call from several threads at once.
+     *
+     * @param session The session the message comes from.
+     * @param userMessage The message input by the user.
+     * @return The chatbot's response based on the user's command.
+     */
+    public static String getResponse(Session session, String userMessage) {
+        long startNanos = Metrics.startCommand();
+        session.lastFailure = null;
+        UserCommand command = Parser.parseCommand(userMessage);
+        if (command == null) {
+            session.lastFailure = new KifException("Unknown command: " + userMessage);
+            return Messages.getUnknownCommandMessage();
+        }
+
         StringBuilder response = new StringBuilder();
         String[] splitMessage = Parser.splitUserInput(userMessage);
+        long parsedNanos = Metrics.endParse(startNanos);
 
         try {
-            UserCommand command = UserCommand.valueOf(splitMessage[0].toUpperCase());
-            response.append(handleCommand(command, splitMessage, userMessage));
+            if (command == UserCommand.LIST || command == UserCommand.STATS) {
+                Workspace workspace = pinSessionWorkspace(session);
+                response.append(handleCommandIn(workspace, session, command, splitMessage, userMessage));
+            } else {
+                commandLock.lock();
+                try {
+                    Workspace workspace = pinWorkspace(session.workspaceName);
+                    response.append(handleCommandIn(workspace, session, command, splitMessage, userMessage));
+                } finally {
+                    commandLock.unlock();
+                }
+            }
         } catch (IllegalArgumentException | KifException e) {
-            response.append(Ui.getUnknownCommandMessage());
+            session.lastFailure = e;
+            response.append(Messages.getUnknownCommandMessage());
+        } catch (IOException | RuntimeException e) {
+            // a bad task number or date fails only this command, never the front end that sent it
+            session.lastFailure = e;
+            response.append(Messages.getCommandFailedMessage());
         }
+        Metrics.endCommand(command, startNanos, parsedNanos);
         return response.toString();
     }
 
+    /**
+     * Finds and pins the workspace a session has chosen, holding the command lock only if it is a named
+     * workspace, which may have to be loaded.
+     */
+    private static Workspace pinSessionWorkspace(Session session) throws IOException {
+        if (session.workspaceName.equals(Workspace.DEFAULT_NAME)) {
+            return Workspace.getDefault();
+        }
+        commandLock.lock();
+        try {
+            return pinWorkspace(session.workspaceName);
+        } finally {
+            commandLock.unlock();
+        }
+    }
+
+    /**
+     * Finds a workspace by name and pins it, so that it stays loaded until the command using it
+     * has finished, even once the command lock is released. The caller holds the command lock.
+     */
+    private static Workspace pinWorkspace(String name) throws IOException {
+        Workspace workspace = findWorkspace(name);
+        if (workspace != Workspace.getDefault()) {
+            workspaces.pin(workspace);
+        }
+        return workspace;
+    }
+
+    /**
+     * Finds a workspace by name, loading it if it is not in memory. The caller holds the command lock.
+     */
+    private static Workspace findWorkspace(String name) throws IOException {
+        Workspace workspace = name.equals(Workspace.DEFAULT_NAME) ? Workspace.getDefault() : workspaces.get(name);
+        if (isDeferringWrites && !workspace.isDeferringWrites) {
+            runIn(workspace, Storage::deferWrites);
+        }
+        return workspace;
+    }
+
+    /**
+     * Runs a command against a pinned workspace, bound to the running thread, and unpins it afterwards.
+     */
+    private static String handleCommandIn(Workspace workspace, Session session, UserCommand command,
+            String[] splitMessage, String userMessage) throws KifException {
+        Workspace previous = Workspace.bind(workspace);
+        try {
+            return handleCommand(session, command, splitMessage, userMessage);
+        } finally {
+            Workspace.restore(previous);
+            if (workspace != Workspace.getDefault()) {
+                workspaces.unpin(workspace);
+            }
+        }
+    }
+
+    private interface StorageAction {
+        void run() throws IOException;
+    }
+
+    private static void runIn(Workspace workspace, StorageAction action) throws IOException {
+        Workspace previous = Workspace.bind(workspace);
+        try {
+            action.run();
+        } finally {
+            Workspace.restore(previous);
+        }
+    }
+
+    /**
+     * Runs a storage action on the default workspace and then on every named workspace in memory.
+     * The caller holds the command lock.
+     */
+    private static void runInEveryWorkspace(StorageAction action) throws IOException {
+        runIn(Workspace.getDefault(), action);
+        for (Workspace workspace : workspaces.getLoaded()) {
+            runIn(workspace, action);
+        }
+    }
+
+    /**
+     * Keeps changes to every workspace in memory, including workspaces loaded later, until
+     * {@link #flushDeferredWrites()} or {@link #stopDeferringWrites()} saves them.
+     * A workspace evicted in the meantime saves its changes as it goes.
+     */
+    static void deferWrites() throws IOException {
+        commandLock.lock();
+        try {
+            isDeferringWrites = true;
+            runInEveryWorkspace(Storage::deferWrites);
+        } finally {
+            commandLock.unlock();
+        }
+    }
+
+    /**
+     * Saves the changes deferred so far in every workspace, and keeps deferring later ones.
+     *
+     * @throws IOException If the tasks cannot be saved.
+     */
+    static void flushDeferredWrites() throws IOException {
+        commandLock.lock();
+        try {
+            runInEveryWorkspace(Storage::flushDeferredWrites);
+        } finally {
+            commandLock.unlock();
+        }
+    }
+
+    /**
+     * Saves the changes deferred so far in every workspace, and goes back to saving each change as it is made.
+     *
+     * @throws IOException If the tasks cannot be saved.
+     */
+    static void stopDeferringWrites() throws IOException {
+        commandLock.lock();
+        try {
+            isDeferringWrites = false;
+            runInEveryWorkspace(Storage::stopDeferringWrites);
+        } finally {
+            commandLock.unlock();
+        }
+    }
+
+    /**
+     * Saves every workspace's pending and deferred changes and closes its files, so that nothing is lost
+     * on exit. Waits a few seconds for a running command to finish first.
+     */
+    private static void closeAllWorkspaces() {
+        boolean isLocked = false;
+        try {
+            isLocked = commandLock.tryLock(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            try {
+                Storage.closeWorkspace(Workspace.getDefault());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error saving pending changes: " + e.getMessage());
+            }
+            workspaces.closeAll();
+        } finally {
+            if (isLocked) {
+                commandLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Loads the user's tasks from storage, holding off commands until it is done.
+     */
+    static void loadTasks() {
+        commandLock.lock();
+        try {
+            Storage.initialiseUserTasks();
+        } finally {
+            commandLock.unlock();
+        }
+    }
+
+    /**
+     * Processes the user message on Kif's command thread, leaving the calling thread free.
+     * Messages are processed one at a time in the order they are submitted.
+     *
+     * @param userMessage The message input by the user.
+     * @return A future holding the chatbot's response.
+     */
+    public static CompletableFuture<String> getResponseAsync(String userMessage) {
+        return submit(() -> getResponse(userMessage));
+    }
+
+    /**
+     * Runs an action on Kif's command thread, after every action submitted before it.
+     *
+     * @param action The action to run.
+     * @return A future holding the result of the action.
+     */
+    static <T> CompletableFuture<T> submit(Supplier<T> action) {
+        return CompletableFuture.supplyAsync(action, commandExecutor);
+    }
+
+    /**
+     * Closes a session on Kif's command thread, once the commands submitted before have finished with it.
+     *
+     * @param session The session that has ended.
+     * @return A future that completes once the session is closed.
+     */
+    static CompletableFuture<Void> closeSession(Session session) {
+        return submit(() -> {
+            session.close();
+            return null;
+        });
+    }
+
     /**
      * Handles user commands and executes corresponding actions.
      *
+     * @param session The session the command comes from.
      * @param command The parsed user command.
      * @param splitMessage The split message components from user input.
      * @param userMessage The full raw user input.
      * @return A response message indicating the outcome of the command.
      * @throws KifException If an error occurs while processing the command.
      */
-    static String handleCommand(UserCommand command, String[] splitMessage, String userMessage) throws KifException {
-        if (command == UserCommand.LIST) {
-            previousCommand = command;
-            previousTask = null;
-        }
-
+    static String handleCommand(Session session, UserCommand command, String[] splitMessage, String userMessage)
+            throws KifException {
         return switch (command) {
-            case LIST -> Task.listUserTask();
-            case MARK -> updateTaskStatus(Integer.parseInt(splitMessage[1]), true);
-            case UNMARK -> updateTaskStatus(Integer.parseInt(splitMessage[1]), false);
-            case DEADLINE -> createTask(Task.Deadline.create(userMessage));
-            case EVENT -> createTask(Task.Event.create(userMessage));
-            case TODO -> createTask(Task.ToDo.create(userMessage));
-            case DELETE -> deleteTask(Integer.parseInt(splitMessage[1]));
-            case BYE -> exitApplication();
-            case UNDO -> undo();
+            case LIST -> listTasks(session, Parser.extractListPage(splitMessage, session.listPageSize));
+            case MARK -> updateTaskStatus(session, Integer.parseInt(splitMessage[1]), true);
+            case UNMARK -> updateTaskStatus(session, Integer.parseInt(splitMessage[1]), false);
+            case DEADLINE -> createTask(session, Task.Deadline.create(userMessage));
+            case EVENT -> createTask(session, Task.Event.create(userMessage));
+            case TODO -> createTask(session, Task.ToDo.create(userMessage));
+            case DELETE -> deleteTask(session, Integer.parseInt(splitMessage[1]));
+            case BYE -> exitApplication(session);
+            case UNDO -> undoPrevCommand(session);
+            case REDO -> redoNextCommand(session);
+            case FIND -> Task.findTasks(Parser.extractFindQuery(userMessage));
+            case DUE -> listDueTasks(Parser.extractDueRange(splitMessage));
+            case OVERDUE -> Task.listOverdueTasks();
+            case ON -> Task.listEventsOn(Parser.extractOnDate(splitMessage));
+            case CLASHES -> Task.listClashingEvents();
+            case STATS -> Messages.formatMessage(Metrics.report());
+            case WORKSPACE -> switchWorkspace(session, Parser.extractWorkspaceName(userMessage));
         };
     }
 
-    /**
-     * Undoes the last user action.
-     *
-     * @return A response message indicating the undo result.
-     * @throws KifException If an error occurs while undoing.
-     */
-    private static String undo() throws KifException {
-        assert previousCommand != null : "Previous command should not be null before undo";
-        String result = undoPrevCommand();
-        previousCommand = UserCommand.UNDO;
-        previousTask = null;
-        return result;
-    }
-
     /**
      * Updates the status of a task (mark/unmark).
      *
+     * @param session The session to record the command in.
      * @param index The index of the task to update.
      * @param isMarking Whether the task is being marked as done or not.
      * @return A response message indicating the updated task status.
      */
-    private static String updateTaskStatus(int index, boolean isMarking) {
+    private static String updateTaskStatus(Session session, int index, boolean isMarking) {
         assert index >= 0 : "Task index should be non-negative";
 
-        previousTask = Task.getTask(index);
-        assert previousTask != null : "Previous task should not be null when updating";
+        Task task = Task.getTask(index);
+        assert task != null : "Task should not be null when updating";
 
-        previousCommand = isMarking ? UserCommand.MARK : UserCommand.UNMARK;
-        return isMarking ? Task.markTask(index) : Task.unmarkTask(index);
+        String result = isMarking ? Task.markTask(index) : Task.unmarkTask(index);
+        session.history.record(new History.Entry(isMarking ? UserCommand.MARK : UserCommand.UNMARK, task.id, ""));
+        return result;
     }
 
     /**
      * Creates a new task and adds it to the task list.
      *
+     * @param session The session to record the command in.
      * @param task The task to be created.
      * @return A response message indicating the created task details.
      */
-    private static String createTask(Task task) {
+    private static String createTask(Session session, Task task) {
         assert task != null : "Task should not be null when creating";
 
-        previousTask = task;
-        previousCommand = determineTaskCommand(task);
+        session.history.record(new History.Entry(determineTaskCommand(task), task.id, Storage.formatTask(task)));
         return Task.createTaskMsg(task);
     }
 
@@ -182,18 +500,68 @@ public class Kif {
         }
     }
 
-    private static String deleteTask(int index) {
+    private static String deleteTask(Session session, int index) {
         assert index >= 0 : "Task index should be non-negative";
 
-        previousTask = Task.getTask(index);
-        assert previousTask != null : "Previous task should not be null when deleting";
+        Task task = Task.getTask(index);
+        assert task != null : "Task should not be null when deleting";
 
-        previousCommand = UserCommand.DELETE;
+        session.history.record(new History.Entry(UserCommand.DELETE, task.id, Storage.formatTask(task)));
         return Task.deleteTask(index);
     }
 
-    private static String exitApplication() {
-        Ui.closeGui();
-        return Ui.getGoodbyeMessage();
+    /**
+     * Lists a page of tasks, remembering the page size and the next page in the session.
+     *
+     * @param session The session listing the tasks.
+     * @param pageAndSize The 1-based page to list and the number of tasks on each page.
+     * @return The listed page.
+     */
+    private static String listTasks(Session session, int[] pageAndSize) {
+        int page = pageAndSize[0];
+        session.listPageSize = pageAndSize[1];
+        String listing = Task.listUserTask(page, session.listPageSize);
+        session.nextListPage = page < Task.countListPages(session.listPageSize) ? page + 1 : 0;
+        return listing;
+    }
+
+    private static String listDueTasks(LocalDate[] range) {
+        return Task.listDueTasks(range[0], range[1]);
+    }
+
+    /**
+     * Moves the session to another workspace, or names its current one if no name is given.
+     * The session's undo history and list position belong to the old workspace, so they are cleared.
+     *
+     * @param session The session to move.
+     * @param name The name of the workspace, or the empty string.
+     * @return A response message naming the workspace and its number of tasks.
+     */
+    private static String switchWorkspace(Session session, String name) {
+        if (name.isEmpty()) {
+            return Messages.formatMessage("You are working in workspace " + session.workspaceName + ".");
+        }
+        if (!WorkspaceRegistry.isValidName(name)) {
+            return Messages.formatMessage("Workspace names can only have letters, digits, - and _, up to 64 of them.");
+        }
+
+        Workspace workspace;
+        try {
+            workspace = findWorkspace(name);
+        } catch (IOException e) {
+            return Messages.formatMessage("Kif could not open workspace " + name + ": " + e.getMessage());
+        }
+        if (!name.equals(session.workspaceName)) {
+            session.workspaceName = name;
+            session.history.clear();
+            session.nextListPage = 0;
+        }
+        return Messages.formatMessage("Now working in workspace " + name + ", which has "
+                + workspace.tasks.size() + " tasks.");
+    }
+
+    private static String exitApplication(Session session) {
+        session.exitHook.run();
+        return Messages.getGoodbyeMessage();
     }
 }
@@ -2,6 +2,8 @@ package kif;
 
 public class KifException extends Exception {
 
+    private static final long serialVersionUID = 1L;
+
     public KifException(String message) {
         super(message);
     }
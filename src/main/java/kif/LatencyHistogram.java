@@ -0,0 +1,115 @@
+package kif;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds that can be recorded into from any thread without locking.
+ *
+ * <p>Buckets are log-linear, in the style of HdrHistogram: each power of two is split into
+ * {@code SUB_BUCKETS} equal buckets, so any value is reported to within about 6% using a fixed
+ * array of counters. Recording a value is one index calculation and three atomic additions.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds; negative durations are recorded as zero.
+     */
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(indexOf(value));
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     */
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean of the durations recorded, in nanoseconds, or 0 if there are none.
+     */
+    long getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : total.sum() / count;
+    }
+
+    /**
+     * Returns the longest duration recorded, in nanoseconds.
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns a duration that the given percentage of recorded durations do not exceed,
+     * to within the precision of the buckets.
+     *
+     * @param percentile The percentage, from 0 to 100.
+     * @return The duration in nanoseconds, or 0 if none have been recorded.
+     */
+    long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Finds the bucket of a value: values below {@code SUB_BUCKETS} have a bucket each, and larger
+     * ones keep only their top {@code SUB_BUCKET_BITS + 1} bits.
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -1,12 +1,111 @@
 package kif;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 import javafx.application.Application;
 
 /**
  * A launcher class to workaround classpath issues.
+ * Also runs command scripts without the GUI when given {@code --batch <file|-> [--checkpoint <n>]},
+ * runs Kif in the console when given {@code --cli [command]}, and serves local clients over a socket
+ * when given {@code --serve [port]}, in each case without starting JavaFX.
  */
 public class Launcher {
+
+    private static final String BATCH_OPTION = "--batch";
+    private static final String CLI_OPTION = "--cli";
+    private static final String SERVE_OPTION = "--serve";
+    private static final String CHECKPOINT_OPTION = "--checkpoint";
+    private static final String STDIN_NAME = "-";
+    private static final String USAGE = "Usage: kif [--batch <file|-> [--checkpoint <commands>] | --cli [command] | --serve [port]]";
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals(BATCH_OPTION)) {
+            System.exit(runBatch(args));
+        } else if (args.length > 0 && args[0].equals(CLI_OPTION)) {
+            System.exit(Cli.run(Arrays.copyOfRange(args, 1, args.length)));
+        } else if (args.length > 0 && args[0].equals(SERVE_OPTION)) {
+            System.exit(runServer(args));
+        }
+        // only the long-running modes are worth watching over JMX, and the others start faster without it
+        Metrics.registerMBean();
         Application.launch(Ui.class, args);
     }
-}
\ No newline at end of file
+
+    /**
+     * Serves Kif on the port named in the arguments, or the default port, until the process is stopped.
+     *
+     * @return The exit status.
+     */
+    private static int runServer(String[] args) {
+        int port = Server.DEFAULT_PORT;
+        try {
+            if (args.length == 2) {
+                port = Integer.parseInt(args[1]);
+            } else if (args.length != 1) {
+                port = -1;
+            }
+        } catch (NumberFormatException e) {
+            port = -1;
+        }
+        if (port < 0 || port > 65535) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try (Server server = new Server(port)) {
+            Metrics.registerMBean();
+            Kif.loadTasks();
+            System.out.println("Kif is listening on port " + server.getPort());
+            server.run();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error running server: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Runs the command script named in the arguments.
+     *
+     * @return The exit status.
+     */
+    private static int runBatch(String[] args) {
+        int checkpointInterval = 0;
+        if (args.length == 4 && args[2].equals(CHECKPOINT_OPTION)) {
+            try {
+                checkpointInterval = Integer.parseInt(args[3]);
+            } catch (NumberFormatException e) {
+                checkpointInterval = -1;
+            }
+        } else if (args.length != 2) {
+            checkpointInterval = -1;
+        }
+        if (checkpointInterval < 0) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        Writer errors = new OutputStreamWriter(System.err, StandardCharsets.UTF_8);
+        try (BufferedReader commands = args[1].equals(STDIN_NAME)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            BatchRunner runner = new BatchRunner(checkpointInterval);
+            runner.run(commands, output, errors);
+            return runner.getFailedLineCount() > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println("Error running batch: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -1,27 +1,46 @@
 package kif;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.VBox;
 
 /**
  * Controller for the main GUI.
+ * The transcript is a virtualized list: messages are kept as plain records,
+ * and dialog boxes are only created for the rows currently on screen.
+ * Commands run on Kif's command thread, so the window stays responsive during slow writes;
+ * a pending message holds the place of each reply until it arrives.
+ * A long task list is shown a page at a time, and the next page is fetched once the user
+ * scrolls down to the page before it.
  */
 public class MainWindow extends AnchorPane {
     @FXML
-    private ScrollPane scrollPane;
-    @FXML
-    private VBox dialogContainer;
+    private ListView<Ui.Message> dialogList;
     @FXML
     private TextField userInput;
 
+    private static final String LIST_COMMAND = "list";
+
     private final Image kifImage;
     private final Image userImage;
 
+    // the list page whose next page is fetched once it scrolls into view, and the number of that page
+    private Ui.Message continuedMessage;
+    private int nextListPage;
+
+    /**
+     * Represents a reply from Kif, along with the page that follows it if it is a page of the list.
+     */
+    private record Reply(String text, int nextListPage) {
+    }
+
     /**
      * Initializes the MainWindow with necessary UI components.
      */
@@ -32,7 +51,7 @@ public class MainWindow extends AnchorPane {
 
     @FXML
     public void initialize() {
-        scrollPane.vvalueProperty().bind(dialogContainer.heightProperty());
+        dialogList.setCellFactory(list -> new Ui.DialogCell(list, userImage, kifImage, this::handleMessageShown));
         showWelcomeMsg();
         showExistingTasks();
     }
@@ -48,23 +67,94 @@ public class MainWindow extends AnchorPane {
     }
 
     /**
-     * Loads and displays existing user tasks.
+     * Loads and displays the first page of existing user tasks.
      */
     private void showExistingTasks() {
-        Storage.initialiseUserTasks();
-        dialogContainer.getChildren().add(Ui.DialogBox.getKifDialog(Task.listUserTask(), kifImage));
+        Ui.Message pending = Ui.Message.pending();
+        addMessages(pending);
+        showReply(pending, Kif.submit(() -> {
+            Kif.loadTasks();
+            return respond(LIST_COMMAND, true);
+        }));
+    }
+
+    /**
+     * Processes a message in the GUI's session. Runs on Kif's command thread.
+     *
+     * @param userText The message to process.
+     * @param isList Whether the message is a list command.
+     */
+    private static Reply respond(String userText, boolean isList) {
+        String text = Kif.getResponse(userText);
+        return new Reply(text, isList ? Kif.defaultSession.nextListPage : 0);
+    }
+
+    /**
+     * Fetches the next page of the list once the page before it scrolls into view.
+     * Called during layout, so the transcript is only changed afterwards.
+     */
+    private void handleMessageShown(Ui.Message message) {
+        if (message != continuedMessage) {
+            return;
+        }
+        continuedMessage = null;
+        String command = LIST_COMMAND + " " + nextListPage;
+        Platform.runLater(() -> {
+            Ui.Message pending = Ui.Message.pending();
+            dialogList.getItems().add(pending);
+            showReply(pending, Kif.submit(() -> respond(command, true)));
+        });
     }
 
     /**
      * Displays the welcome message.
      */
     public void showWelcomeMsg() {
-        dialogContainer.getChildren().add(Ui.DialogBox.getKifDialog(Ui.getIntroductionMessage(), kifImage));
+        addMessages(Ui.Message.fromKif(Messages.getIntroductionMessage()));
+    }
+
+    /**
+     * Appends messages to the transcript and scrolls to the newest one.
+     *
+     * @param messages The messages to append.
+     */
+    private void addMessages(Ui.Message... messages) {
+        dialogList.getItems().addAll(messages);
+        dialogList.scrollTo(dialogList.getItems().size() - 1);
+    }
+
+    /**
+     * Replaces a pending message with Kif's reply once it is ready.
+     *
+     * @param pending The pending message in the transcript.
+     * @param reply The reply being worked on.
+     */
+    private void showReply(Ui.Message pending, CompletableFuture<Reply> reply) {
+        reply.exceptionally(e -> new Reply(Messages.getCommandFailedMessage(), 0))
+                .thenAccept(kifReply -> Platform.runLater(() -> {
+                    Ui.Message message = Ui.Message.fromKif(kifReply.text());
+                    continuedMessage = kifReply.nextListPage() > 0 ? message : null;
+                    nextListPage = kifReply.nextListPage();
+                    replaceMessage(pending, message);
+                }));
+    }
+
+    /**
+     * Swaps a message in the transcript for another, matching by identity since messages may repeat.
+     */
+    private void replaceMessage(Ui.Message oldMessage, Ui.Message newMessage) {
+        List<Ui.Message> items = dialogList.getItems();
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (items.get(i) == oldMessage) {
+                items.set(i, newMessage);
+                return;
+            }
+        }
     }
 
     /**
-     * Handles user input by displaying the user's message and generating Kif's response.
-     * Clears the input field after processing.
+     * Handles user input by displaying the user's message and a pending reply, then submitting the
+     * command to Kif. Clears the input field straight away so that the user can keep typing.
      */
     @FXML
     private void handleUserInput() {
@@ -73,11 +163,10 @@ public class MainWindow extends AnchorPane {
             return;
         }
 
-        String kifText = Kif.getResponse(userText);
-        dialogContainer.getChildren().addAll(
-                Ui.DialogBox.getUserDialog(userText, userImage),
-                Ui.DialogBox.getKifDialog(kifText, kifImage)
-        );
+        Ui.Message pending = Ui.Message.pending();
+        addMessages(Ui.Message.fromUser(userText), pending);
         userInput.clear();
+        boolean isList = Parser.parseCommand(userText) == Kif.UserCommand.LIST;
+        showReply(pending, Kif.submit(() -> respond(userText, isList)));
     }
 }
\ No newline at end of file
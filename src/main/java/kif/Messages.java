@@ -0,0 +1,66 @@
+package kif;
+
+/**
+ * Builds the text of Kif's replies.
+ * Holds no GUI code, so that Kif can run without loading JavaFX.
+ */
+public final class Messages {
+
+    private static final String SEPARATOR = "____________________________________________________________";
+
+    private Messages() {
+    }
+
+    /**
+     * Formats messages with a separator.
+     *
+     * @param lines The lines to format.
+     * @return The formatted message.
+     */
+    public static String formatMessage(String... lines) {
+        long startNanos = System.nanoTime();
+        String message = SEPARATOR + System.lineSeparator() + String.join(System.lineSeparator(), lines)
+                + System.lineSeparator() + SEPARATOR;
+        Metrics.addPhaseTime(Metrics.Phase.RENDER, startNanos);
+        return message;
+    }
+
+    /**
+     * Returns the introduction message for Kif.
+     */
+    public static String getIntroductionMessage() {
+        return formatMessage("Hello! I'm Kif", "What can I do for you?");
+    }
+
+    /**
+     * Returns a message indicating that a command failed unexpectedly.
+     */
+    public static String getCommandFailedMessage() {
+        return formatMessage("Kif: Sorry, something went wrong while doing that. Please try again!");
+    }
+
+    public static String getUnknownCommandMessage() {
+        return formatMessage("I'm sorry, but I don't understand that command. Please try again!");
+    }
+
+    /**
+     * Returns the goodbye message.
+     */
+    public static String getGoodbyeMessage() {
+        return formatMessage("Kif: Bye. Hope to see you again soon!");
+    }
+
+    /**
+     * Returns a message indicating that there is no command to undo.
+     */
+    public static String getCannotUndoMessage() {
+        return formatMessage("Kif: No command to undo.");
+    }
+
+    /**
+     * Returns a message indicating that there is no command to redo.
+     */
+    public static String getCannotRedoMessage() {
+        return formatMessage("Kif: No command to redo.");
+    }
+}
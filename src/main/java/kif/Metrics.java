@@ -0,0 +1,223 @@
+package kif;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects how long commands take, both in total and in each phase of handling them,
+ * along with how much storage writes.
+ *
+ * <p>Each command's time is split into phases: parsing the input, updating the task list,
+ * saving to storage, and rendering the reply. Parsing is timed around the parser, while storage
+ * and rendering are timed where they happen and summed per thread, so that the rest of the
+ * command can be put down to the task list. Recording takes a few calls to {@code System.nanoTime}
+ * and some atomic additions, with no locks and no boxing.
+ */
+final class Metrics {
+
+    /**
+     * Represents the phases of handling a command.
+     */
+    enum Phase { PARSE, MODEL, STORAGE, RENDER }
+
+    private static final String OBJECT_NAME = "kif:type=Metrics";
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final String LATENCY_FORMAT = "  %s: %d times, p50 %.1f us, p99 %.1f us, max %.1f us";
+
+    private static final LatencyHistogram[] commandLatencies = createHistograms(Kif.UserCommand.values().length);
+    private static final LatencyHistogram[] phaseLatencies = createHistograms(Phase.values().length);
+    private static final LongAdder bytesWritten = new LongAdder();
+    private static final LongAdder linesRewritten = new LongAdder();
+
+    // time spent in storage and rendering by the command running on each thread
+    private static final ThreadLocal<long[]> phaseNanos = ThreadLocal.withInitial(() -> new long[Phase.values().length]);
+
+    private Metrics() {
+    }
+
+    private static LatencyHistogram[] createHistograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * Starts timing a command on the calling thread.
+     *
+     * @return The time the command started, to be passed on to the other calls for the command.
+     */
+    static long startCommand() {
+        long[] nanos = phaseNanos.get();
+        nanos[Phase.STORAGE.ordinal()] = 0;
+        nanos[Phase.RENDER.ordinal()] = 0;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time taken to parse a command.
+     *
+     * @param startNanos The time the command started.
+     * @return The time parsing finished.
+     */
+    static long endParse(long startNanos) {
+        long now = System.nanoTime();
+        phaseLatencies[Phase.PARSE.ordinal()].record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Records the time taken by a command, and by the phases after parsing.
+     *
+     * @param command The command.
+     * @param startNanos The time the command started.
+     * @param parsedNanos The time parsing finished.
+     */
+    static void endCommand(Kif.UserCommand command, long startNanos, long parsedNanos) {
+        long now = System.nanoTime();
+        long[] nanos = phaseNanos.get();
+        long storage = nanos[Phase.STORAGE.ordinal()];
+        long render = nanos[Phase.RENDER.ordinal()];
+        commandLatencies[command.ordinal()].record(now - startNanos);
+        phaseLatencies[Phase.STORAGE.ordinal()].record(storage);
+        phaseLatencies[Phase.RENDER.ordinal()].record(render);
+        phaseLatencies[Phase.MODEL.ordinal()].record(now - parsedNanos - storage - render);
+    }
+
+    /**
+     * Adds the time since {@code startNanos} to a phase of the command running on the calling thread.
+     *
+     * @param phase The phase, which should be {@code STORAGE} or {@code RENDER}.
+     * @param startNanos The time the phase started.
+     */
+    static void addPhaseTime(Phase phase, long startNanos) {
+        phaseNanos.get()[phase.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Counts bytes written to the task files.
+     */
+    static void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Counts lines written out again when the whole task file is rewritten.
+     */
+    static void addLinesRewritten(long lines) {
+        linesRewritten.add(lines);
+    }
+
+    static LatencyHistogram getCommandLatency(Kif.UserCommand command) {
+        return commandLatencies[command.ordinal()];
+    }
+
+    static LatencyHistogram getPhaseLatency(Phase phase) {
+        return phaseLatencies[phase.ordinal()];
+    }
+
+    static long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    static long getLinesRewritten() {
+        return linesRewritten.sum();
+    }
+
+    /**
+     * Describes the latencies and counters collected so far, one line each.
+     *
+     * @return The report.
+     */
+    static String report() {
+        StringBuilder report = new StringBuilder("Here is how long commands have taken:");
+        for (Kif.UserCommand command : Kif.UserCommand.values()) {
+            LatencyHistogram histogram = getCommandLatency(command);
+            if (histogram.getCount() > 0) {
+                appendLatency(report, command.name().toLowerCase(), histogram);
+            }
+        }
+        report.append(System.lineSeparator()).append("Time spent in each phase of a command:");
+        for (Phase phase : Phase.values()) {
+            appendLatency(report, phase.name().toLowerCase(), getPhaseLatency(phase));
+        }
+        report.append(System.lineSeparator()).append("Bytes written: ").append(getBytesWritten())
+                .append(System.lineSeparator()).append("Lines rewritten: ").append(getLinesRewritten());
+        return report.toString();
+    }
+
+    private static void appendLatency(StringBuilder report, String name, LatencyHistogram histogram) {
+        report.append(System.lineSeparator()).append(String.format(LATENCY_FORMAT, name, histogram.getCount(),
+                histogram.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MICRO, histogram.getMax() / NANOS_PER_MICRO));
+    }
+
+    /**
+     * Makes the metrics available over JMX as {@code kif:type=Metrics}.
+     * Does nothing if they are already registered.
+     */
+    static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exposes the metrics over JMX, with latencies in microseconds.
+     */
+    private static class Bean implements MetricsMXBean {
+
+        @Override
+        public Map<String, Long> getCommandCounts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (Kif.UserCommand command : Kif.UserCommand.values()) {
+                counts.put(command.name(), getCommandLatency(command).getCount());
+            }
+            return counts;
+        }
+
+        @Override
+        public Map<String, Double> getCommandP99Micros() {
+            Map<String, Double> latencies = new LinkedHashMap<>();
+            for (Kif.UserCommand command : Kif.UserCommand.values()) {
+                latencies.put(command.name(), getCommandLatency(command).getValueAtPercentile(99) / NANOS_PER_MICRO);
+            }
+            return latencies;
+        }
+
+        @Override
+        public Map<String, Double> getPhaseP99Micros() {
+            Map<String, Double> latencies = new LinkedHashMap<>();
+            for (Phase phase : Phase.values()) {
+                latencies.put(phase.name(), getPhaseLatency(phase).getValueAtPercentile(99) / NANOS_PER_MICRO);
+            }
+            return latencies;
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return Metrics.getBytesWritten();
+        }
+
+        @Override
+        public long getLinesRewritten() {
+            return Metrics.getLinesRewritten();
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+    }
+}
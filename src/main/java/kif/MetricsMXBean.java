@@ -0,0 +1,40 @@
+package kif;
+
+import java.util.Map;
+
+/**
+ * The command metrics that Kif makes available over JMX, as {@code kif:type=Metrics}.
+ * Latencies are in microseconds.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Returns how many times each command has run.
+     */
+    Map<String, Long> getCommandCounts();
+
+    /**
+     * Returns the 99th percentile latency of each command.
+     */
+    Map<String, Double> getCommandP99Micros();
+
+    /**
+     * Returns the 99th percentile time each phase takes within a command.
+     */
+    Map<String, Double> getPhaseP99Micros();
+
+    /**
+     * Returns the number of bytes written to the task files.
+     */
+    long getBytesWritten();
+
+    /**
+     * Returns the number of lines written out again when the whole task file is rewritten.
+     */
+    long getLinesRewritten();
+
+    /**
+     * Returns the report shown by the {@code stats} command.
+     */
+    String getReport();
+}
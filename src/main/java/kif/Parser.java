@@ -1,11 +1,42 @@
 package kif;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Parses user input and formats dates for display.
+ *
+ * <p>Commands are tokenized by scanning the input once, with no regular expressions: the command
+ * keyword is looked up in a table bucketed by its first letter, and the {@code /by},
+ * {@code /from} and {@code /to} markers are found with {@code indexOf}.
+ */
 public class Parser {
 
+    private static final String DEADLINE_PREFIX = "deadline ";
+    private static final String EVENT_PREFIX = "event ";
+    private static final String TODO_PREFIX = "todo";
+    private static final String FIND_PREFIX = "find";
+    private static final String WORKSPACE_PREFIX = "workspace";
+    private static final String BY_MARKER = " /by ";
+    private static final String FROM_MARKER = " /from ";
+    private static final String TO_MARKER = " /to ";
+    private static final String PAGE_SIZE_OPTION = "--page-size";
+    private static final String[] NO_WORDS = {""};
+    private static final int ISO_DATE_LENGTH = 10;
+    private static final int ISO_DATE_TIME_LENGTH = 16;
+
+    // commands bucketed by the lower-case letter they start with
+    private static final Kif.UserCommand[][] COMMANDS_BY_INITIAL = buildCommandTable();
+
     private static final String DATE_FORMAT_ERROR =
             """
             ____________________________________________________________
@@ -18,7 +49,43 @@ public class Parser {
             OOPS!!! The description of a todo cannot be empty.
             ____________________________________________________________""";
 
-    private static final DateTimeFormatter OUTPUT_DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy");
+    private static final String EMPTY_FIND_ERROR =
+            """
+            ____________________________________________________________
+            OOPS!!! Please tell me what to find.
+            ____________________________________________________________""";
+
+    private static final String DUE_RANGE_ERROR =
+            """
+            ____________________________________________________________
+            Kif: Please give a range as "due yyyy-MM-dd yyyy-MM-dd" and try again
+            ____________________________________________________________""";
+
+    private static final String ON_DATE_ERROR =
+            """
+            ____________________________________________________________
+            Kif: Please give a date as "on yyyy-MM-dd" and try again
+            ____________________________________________________________""";
+
+    private static final String LIST_PAGE_ERROR =
+            """
+            ____________________________________________________________
+            Kif: Please give a page as "list [page] [--page-size size]" and try again
+            ____________________________________________________________""";
+
+    // dates are formatted once per day and then looked up, since many tasks share the same few dates;
+    // the month names are always English, so that they read the same everywhere and parse back in
+    private static final FormattedDates OUTPUT_DATES =
+            new FormattedDates(DateTimeFormatter.ofPattern("MMM dd yyyy", Locale.ENGLISH));
+
+    private static final List<DateTimeFormatter> EVENT_DATE_FORMATTERS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("MMM dd yyyy", Locale.ENGLISH));
+    private static final List<DateTimeFormatter> EVENT_DATE_TIME_FORMATTERS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
+            DateTimeFormatter.ofPattern("MMM dd yyyy HH:mm", Locale.ENGLISH));
 
     /**
      * Parses a date string in "yyyy-MM-dd" format to a LocalDate object.
@@ -27,20 +94,183 @@ public class Parser {
      * @throws KifException If the input format is invalid.
      */
     public static LocalDate parseDate(String inputDate) throws KifException {
+        String text = inputDate.trim();
+        LocalDate date = text.length() == ISO_DATE_LENGTH ? parseIsoDateQuickly(text, 0) : null;
+        if (date != null) {
+            return date;
+        }
         try {
-            return LocalDate.parse(inputDate.trim());
+            return LocalDate.parse(text);
         } catch (DateTimeParseException e) {
             throw new KifException(DATE_FORMAT_ERROR);
         }
     }
 
     /**
-     * Splits user input into individual words.
+     * Parses a plain "yyyy-MM-dd" date by its fixed character positions, skipping the formatter.
+     * Any text after the date is ignored.
+     * @param text The text holding the date.
+     * @param offset Where the date starts in the text.
+     * @return The date, or null if the text there is not a valid date of that exact form.
+     */
+    private static LocalDate parseIsoDateQuickly(String text, int offset) {
+        if (text.length() < offset + ISO_DATE_LENGTH
+                || text.charAt(offset + 4) != '-' || text.charAt(offset + 7) != '-') {
+            return null;
+        }
+        int year = parseDigits(text, offset, offset + 4);
+        int month = parseDigits(text, offset + 5, offset + 7);
+        int day = parseDigits(text, offset + 8, offset + 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Parses a stored "yyyy-MM-ddTHH:mm" date-time by its fixed character positions.
+     * @return The date-time, or null if the text is not a valid date-time of that exact form.
+     */
+    private static LocalDateTime parseIsoDateTimeQuickly(String text) {
+        if (text.length() != ISO_DATE_TIME_LENGTH || text.charAt(10) != 'T' || text.charAt(13) != ':') {
+            return null;
+        }
+        LocalDate date = parseIsoDateQuickly(text, 0);
+        int hour = parseDigits(text, 11, 13);
+        int minute = parseDigits(text, 14, 16);
+        if (date == null || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+        return date.atTime(hour, minute);
+    }
+
+    /**
+     * Returns the value of the decimal digits in a range of the text, or -1 if any is not a digit.
+     */
+    private static int parseDigits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Splits user input into individual words, separated by runs of whitespace.
      * @param input The user input string.
-     * @return An array of words from the input.
+     * @return An array of words from the input, or a single empty word if it is blank.
      */
     public static String[] splitUserInput(String input) {
-        return input.trim().split("\\s+");
+        int length = input.length();
+        int wordCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (!isSpace(input.charAt(i)) && (i == 0 || isSpace(input.charAt(i - 1)))) {
+                wordCount++;
+            }
+        }
+        if (wordCount == 0) {
+            return NO_WORDS.clone();
+        }
+
+        String[] words = new String[wordCount];
+        int word = 0;
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean isWordChar = i < length && !isSpace(input.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words[word++] = input.substring(start, i);
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Finds the command that the user input starts with, ignoring case.
+     * @param input The user input string.
+     * @return The command, or null if the input does not start with a known command.
+     */
+    public static Kif.UserCommand parseCommand(String input) {
+        int start = 0;
+        while (start < input.length() && isSpace(input.charAt(start))) {
+            start++;
+        }
+        if (start == input.length()) {
+            return null;
+        }
+
+        int bucket = Character.toLowerCase(input.charAt(start)) - 'a';
+        if (bucket < 0 || bucket >= COMMANDS_BY_INITIAL.length) {
+            return null;
+        }
+        for (Kif.UserCommand command : COMMANDS_BY_INITIAL[bucket]) {
+            String keyword = command.name();
+            int end = start + keyword.length();
+            if (input.regionMatches(true, start, keyword, 0, keyword.length())
+                    && (end == input.length() || isSpace(input.charAt(end)))) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private static Kif.UserCommand[][] buildCommandTable() {
+        List<List<Kif.UserCommand>> buckets = new ArrayList<>();
+        for (int i = 0; i < 26; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Kif.UserCommand command : Kif.UserCommand.values()) {
+            buckets.get(Character.toLowerCase(command.name().charAt(0)) - 'a').add(command);
+        }
+
+        Kif.UserCommand[][] table = new Kif.UserCommand[buckets.size()][];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = buckets.get(i).toArray(new Kif.UserCommand[0]);
+        }
+        return table;
+    }
+
+    private static boolean isSpace(char c) {
+        return c <= ' ';
+    }
+
+    /**
+     * Splits text around the leftmost occurrences of any of the markers, into at most {@code limit} parts.
+     * Behaves like {@code String.split} with the markers as a list of literal alternatives.
+     */
+    private static String[] splitAtMarkers(String text, int limit, String... markers) {
+        List<String> parts = new ArrayList<>(limit);
+        int start = 0;
+        while (parts.size() < limit - 1) {
+            int markerStart = -1;
+            int markerEnd = -1;
+            for (String marker : markers) {
+                int index = text.indexOf(marker, start);
+                if (index >= 0 && (markerStart < 0 || index < markerStart)) {
+                    markerStart = index;
+                    markerEnd = index + marker.length();
+                }
+            }
+            if (markerStart < 0) {
+                break;
+            }
+            parts.add(text.substring(start, markerStart));
+            start = markerEnd;
+        }
+        parts.add(text.substring(start));
+        return parts.toArray(new String[0]);
+    }
+
+    private static String removePrefix(String text, String prefix, boolean isIgnoringCase) {
+        return text.regionMatches(isIgnoringCase, 0, prefix, 0, prefix.length())
+                ? text.substring(prefix.length())
+                : text;
     }
 
     /**
@@ -49,7 +279,95 @@ public class Parser {
      * @return The formatted date string.
      */
     public static String formatDate(LocalDate date) {
-        return date.format(OUTPUT_DATE_FORMATTER);
+        return OUTPUT_DATES.format(date);
+    }
+
+    /**
+     * Parses the start or end of an event into a date or date-time.
+     * Accepts ISO dates and date-times, "yyyy-MM-dd HHmm", "yyyy-MM-dd HH:mm",
+     * and the "MMM dd yyyy" form that dates are displayed in.
+     * @param input The text given for the start or end.
+     * @return A LocalDate or LocalDateTime, or null if the text is not a recognised date.
+     */
+    public static Temporal parseEventTime(String input) {
+        String text = input.trim();
+        // stored events hold ISO dates and date-times, so try those without the formatters first
+        if (text.length() == ISO_DATE_LENGTH) {
+            LocalDate date = parseIsoDateQuickly(text, 0);
+            if (date != null) {
+                return date;
+            }
+        } else if (text.length() == ISO_DATE_TIME_LENGTH) {
+            LocalDateTime dateTime = parseIsoDateTimeQuickly(text);
+            if (dateTime != null) {
+                return dateTime;
+            }
+        }
+        for (DateTimeFormatter formatter : EVENT_DATE_TIME_FORMATTERS) {
+            try {
+                return LocalDateTime.parse(text, formatter);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        for (DateTimeFormatter formatter : EVENT_DATE_FORMATTERS) {
+            try {
+                return LocalDate.parse(text, formatter);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Formats the start or end of an event for display.
+     * @param time The parsed date or date-time, or null if the event was given free text.
+     * @param text The text to show when there is no parsed value.
+     * @return The formatted string.
+     */
+    public static String formatEventTime(Temporal time, String text) {
+        if (time instanceof LocalDateTime dateTime) {
+            return OUTPUT_DATES.format(dateTime.toLocalDate()) + ' '
+                    + twoDigits(dateTime.getHour()) + ':' + twoDigits(dateTime.getMinute());
+        } else if (time instanceof LocalDate date) {
+            return formatDate(date);
+        }
+        return text;
+    }
+
+    private static String twoDigits(int number) {
+        return number < 10 ? "0" + number : String.valueOf(number);
+    }
+
+    /**
+     * A fixed-size cache of formatted dates, keyed by epoch day.
+     * Each day maps to one entry, so a date only evicts another that lands on the same entry.
+     */
+    private static final class FormattedDates {
+
+        private static final int SIZE = 4096;
+
+        private record Entry(long epochDay, String text) {
+        }
+
+        private final DateTimeFormatter formatter;
+        private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(SIZE);
+
+        FormattedDates(DateTimeFormatter formatter) {
+            this.formatter = formatter;
+        }
+
+        String format(LocalDate date) {
+            long epochDay = date.toEpochDay();
+            int slot = (int) (epochDay & (SIZE - 1));
+            Entry entry = entries.get(slot);
+            if (entry == null || entry.epochDay() != epochDay) {
+                entry = new Entry(epochDay, date.format(formatter));
+                entries.set(slot, entry);
+            }
+            return entry.text();
+        }
     }
 
     /**
@@ -58,8 +376,8 @@ public class Parser {
      * @return A string array containing the task description and deadline.
      */
     public static String[] extractDeadlineDetails(String userInput) {
-        String[] parts = userInput.split(" /by ", 2);
-        parts[0] = parts[0].replaceFirst("^deadline ", "").trim();
+        String[] parts = splitAtMarkers(userInput, 2, BY_MARKER);
+        parts[0] = removePrefix(parts[0], DEADLINE_PREFIX, false).trim();
         return parts;
     }
 
@@ -69,8 +387,8 @@ public class Parser {
      * @return A string array containing the task description, start time, and end time.
      */
     public static String[] extractEventDetails(String userInput) {
-        String[] parts = userInput.split(" /from | /to ", 3);
-        parts[0] = parts[0].replaceFirst("^event ", "").trim();
+        String[] parts = splitAtMarkers(userInput, 3, FROM_MARKER, TO_MARKER);
+        parts[0] = removePrefix(parts[0], EVENT_PREFIX, false).trim();
         return parts;
     }
 
@@ -81,10 +399,94 @@ public class Parser {
      * @throws KifException If the description is empty.
      */
     public static String extractToDoDescription(String userInput) throws KifException {
-        String description = userInput.replaceFirst("^todo", "").trim();
+        String description = removePrefix(userInput, TODO_PREFIX, false).trim();
         if (description.isEmpty()) {
             throw new KifException(EMPTY_TODO_ERROR);
         }
         return description;
     }
+
+    /**
+     * Extracts the search query from a find command input.
+     * @param userInput The full user input string.
+     * @return The search query.
+     * @throws KifException If the query is empty.
+     */
+    public static String extractFindQuery(String userInput) throws KifException {
+        String query = removePrefix(userInput.trim(), FIND_PREFIX, true).trim();
+        if (query.isEmpty()) {
+            throw new KifException(EMPTY_FIND_ERROR);
+        }
+        return query;
+    }
+
+    /**
+     * Extracts the workspace name from a workspace command input.
+     * @param userInput The full user input string.
+     * @return The workspace name, or the empty string if none is given.
+     */
+    public static String extractWorkspaceName(String userInput) {
+        return removePrefix(userInput.trim(), WORKSPACE_PREFIX, true).trim();
+    }
+
+    /**
+     * Parses a due command input into the first and last dates of its range.
+     * @param splitMessage The words of the user input.
+     * @return A LocalDate array containing the start and end of the range.
+     * @throws KifException If the range is missing or its dates are invalid.
+     */
+    public static LocalDate[] extractDueRange(String[] splitMessage) throws KifException {
+        if (splitMessage.length != 3) {
+            throw new KifException(DUE_RANGE_ERROR);
+        }
+        return new LocalDate[]{parseDate(splitMessage[1]), parseDate(splitMessage[2])};
+    }
+
+    /**
+     * Parses the date of an on command input.
+     * @param splitMessage The words of the user input.
+     * @return The date.
+     * @throws KifException If the date is missing or invalid.
+     */
+    public static LocalDate extractOnDate(String[] splitMessage) throws KifException {
+        if (splitMessage.length != 2) {
+            throw new KifException(ON_DATE_ERROR);
+        }
+        return parseDate(splitMessage[1]);
+    }
+
+    /**
+     * Parses a list command input into the page to show and the number of tasks on each page.
+     * @param splitMessage The words of the user input.
+     * @param pageSize The page size to use if the input does not give one.
+     * @return An int array containing the 1-based page and the page size.
+     * @throws KifException If the page or page size is not a positive number.
+     */
+    public static int[] extractListPage(String[] splitMessage, int pageSize) throws KifException {
+        int page = 1;
+        boolean hasPage = false;
+        for (int i = 1; i < splitMessage.length; i++) {
+            if (splitMessage[i].equalsIgnoreCase(PAGE_SIZE_OPTION) && i + 1 < splitMessage.length) {
+                pageSize = parsePositiveNumber(splitMessage[++i], LIST_PAGE_ERROR);
+            } else if (!hasPage) {
+                page = parsePositiveNumber(splitMessage[i], LIST_PAGE_ERROR);
+                hasPage = true;
+            } else {
+                throw new KifException(LIST_PAGE_ERROR);
+            }
+        }
+        return new int[]{page, pageSize};
+    }
+
+    private static int parsePositiveNumber(String text, String errorMessage) throws KifException {
+        try {
+            int number = Integer.parseInt(text);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below along with numbers out of range
+        }
+        throw new KifException(errorMessage);
+    }
 }
@@ -0,0 +1,131 @@
+package kif;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An inverted index from the words of task descriptions to the ids of the tasks containing them.
+ * Words are sorted, so both exact words and word prefixes are found in O(log V) for V distinct words.
+ */
+class SearchIndex {
+
+    private static final char PREFIX_WILDCARD = '*';
+
+    private final NavigableMap<String, IdSet> postings = new TreeMap<>();
+
+    /**
+     * Indexes every word in the task's description.
+     *
+     * @param task The task to index.
+     */
+    void add(Task task) {
+        for (String word : tokenize(task.description)) {
+            postings.computeIfAbsent(word, key -> new IdSet()).add(task.id);
+        }
+    }
+
+    /**
+     * Removes the task from the index.
+     *
+     * @param task The task to remove.
+     */
+    void remove(Task task) {
+        for (String word : tokenize(task.description)) {
+            IdSet ids = postings.get(word);
+            if (ids == null) {
+                continue;
+            }
+            ids.remove(task.id);
+            if (ids.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Removes every task from the index.
+     */
+    void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Finds the tasks whose descriptions contain every term of the query.
+     * A term ending in {@code *} matches any word starting with the rest of the term.
+     *
+     * @param query The search terms.
+     * @return The ids of the matching tasks, in ascending order.
+     */
+    int[] search(String query) {
+        List<int[]> termMatches = new ArrayList<>();
+        for (String term : query.split(" ")) {
+            boolean isPrefix = !term.isEmpty() && term.charAt(term.length() - 1) == PREFIX_WILDCARD;
+            List<String> words = tokenize(term);
+            for (int i = 0; i < words.size(); i++) {
+                boolean isLastWord = i == words.size() - 1;
+                int[] matches = isPrefix && isLastWord ? searchPrefix(words.get(i)) : searchWord(words.get(i));
+                if (matches.length == 0) {
+                    return matches;
+                }
+                termMatches.add(matches);
+            }
+        }
+        if (termMatches.isEmpty()) {
+            return new int[0];
+        }
+
+        termMatches.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] result = termMatches.get(0);
+        for (int i = 1; i < termMatches.size(); i++) {
+            result = intersect(result, termMatches.get(i));
+        }
+        return result;
+    }
+
+    private int[] searchWord(String word) {
+        IdSet ids = postings.get(word);
+        return ids == null ? new int[0] : ids.toArray();
+    }
+
+    private int[] searchPrefix(String prefix) {
+        Map<String, IdSet> matching = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matching.size() == 1) {
+            return searchWord(matching.keySet().iterator().next());
+        }
+        int[] union = IdSet.union(matching.values());
+        return Arrays.stream(union).distinct().toArray();
+    }
+
+    private static int[] intersect(int[] smaller, int[] larger) {
+        int[] result = new int[smaller.length];
+        int size = 0;
+        for (int id : smaller) {
+            if (Arrays.binarySearch(larger, id) >= 0) {
+                result[size++] = id;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Splits text into lower-case words made of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
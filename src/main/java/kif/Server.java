@@ -0,0 +1,325 @@
+package kif;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Serves Kif to local clients over a loopback TCP socket, so that scripts and plugins can share one
+ * running Kif instead of each starting their own.
+ *
+ * <p>Clients send commands one per line. Each reply is sent as its lines, with a line that starts
+ * with {@code .} given an extra {@code .} in front, followed by a line holding only {@code .}.
+ * Clients may send many commands without waiting for replies; replies come back in the order the
+ * commands were sent. Each connection is a session of its own, and {@code bye} closes it once
+ * the reply has been sent.
+ *
+ * <p>One thread does all the socket work with a selector. Commands are handed to Kif's command
+ * thread, which runs them one at a time across all connections, and the selector thread is woken
+ * to send each reply when it is ready.
+ */
+class Server implements Closeable {
+
+    /** The port used when none is given. */
+    static final int DEFAULT_PORT = 4747;
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
+    private static final int MAX_IN_FLIGHT = 1024;
+    private static final String END_OF_REPLY = ".";
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Queue<Connection> repliedConnections = new ConcurrentLinkedQueue<>();
+    private volatile boolean isClosed;
+
+    /**
+     * Opens a server socket on the loopback interface. Connections are accepted once {@link #run()} is called.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the socket cannot be opened.
+     */
+    Server(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     */
+    int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Serves connections until the server is closed.
+     *
+     * @throws IOException If the server socket fails.
+     */
+    void run() throws IOException {
+        try {
+            while (!isClosed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+
+                Connection connection;
+                while ((connection = repliedConnections.poll()) != null) {
+                    connection.sendReadyReplies();
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                } else {
+                    key.channel().close();
+                }
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Stops serving and closes every connection.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        selector.wakeup();
+    }
+
+    private void handleKey(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.receive();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.send();
+            }
+        } catch (IOException e) {
+            // the client has gone, so there is nobody left to tell
+            connection.close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    /**
+     * Encodes a reply for sending: each line, with a leading {@code .} doubled, then a line holding only {@code .}.
+     *
+     * @param reply The reply.
+     * @return The encoded reply.
+     */
+    static ByteBuffer encodeReply(String reply) {
+        StringBuilder encoded = new StringBuilder(reply.length() + 16);
+        reply.lines().forEach(line -> {
+            if (line.startsWith(END_OF_REPLY)) {
+                encoded.append(END_OF_REPLY);
+            }
+            encoded.append(line).append('\n');
+        });
+        encoded.append(END_OF_REPLY).append('\n');
+        return ByteBuffer.wrap(encoded.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads one reply sent by the server, undoing {@link #encodeReply(String)}.
+     *
+     * @param input The client's side of the connection.
+     * @return The reply, with its lines joined by {@code \n}, or null if the connection was closed first.
+     * @throws IOException If the reply cannot be read.
+     */
+    static String readReply(BufferedReader input) throws IOException {
+        StringJoiner reply = new StringJoiner("\n");
+        String line;
+        while ((line = input.readLine()) != null) {
+            if (line.equals(END_OF_REPLY)) {
+                return reply.toString();
+            }
+            reply.add(line.startsWith(END_OF_REPLY) ? line.substring(1) : line);
+        }
+        return null;
+    }
+
+    /**
+     * A client connection, with the commands it has sent that are still waiting for their replies.
+     * Only used by the selector thread, apart from the callbacks that queue it once a reply is ready.
+     */
+    private class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final Session session = new Session();
+        private final ArrayDeque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> outgoing = new ArrayDeque<>();
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private boolean isInputDone;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        /**
+         * Reads what the client has sent and submits each complete line as a command.
+         */
+        void receive() throws IOException {
+            if (channel.read(input) < 0) {
+                isInputDone = true;
+                updateInterest();
+                closeIfFinished();
+                return;
+            }
+
+            byte[] bytes = input.array();
+            int lineStart = 0;
+            for (int i = 0; i < input.position() && !isInputDone; i++) {
+                if (bytes[i] == '\n') {
+                    int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                    submit(new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+                    lineStart = i + 1;
+                }
+            }
+            input.flip().position(lineStart);
+            input.compact();
+
+            if (!input.hasRemaining()) {
+                if (input.capacity() >= MAX_LINE_LENGTH) {
+                    close();
+                    return;
+                }
+                ByteBuffer larger = ByteBuffer.allocate(input.capacity() * 2);
+                input.flip();
+                input = larger.put(input);
+            }
+            updateInterest();
+        }
+
+        private void submit(String command) {
+            CompletableFuture<String> reply = Kif.submit(() -> Kif.getResponse(session, command));
+            inFlight.add(reply);
+            reply.whenComplete((text, e) -> {
+                repliedConnections.add(this);
+                selector.wakeup();
+            });
+            // later commands from a client that said bye are never run
+            if (Parser.parseCommand(command) == Kif.UserCommand.BYE) {
+                isInputDone = true;
+            }
+        }
+
+        /**
+         * Queues the replies that are ready, in the order their commands arrived, and starts sending them.
+         */
+        void sendReadyReplies() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+                String reply;
+                try {
+                    reply = inFlight.poll().join();
+                } catch (RuntimeException e) {
+                    reply = Messages.getCommandFailedMessage();
+                }
+                outgoing.add(encodeReply(reply));
+            }
+            try {
+                send();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Writes queued replies until the socket will take no more.
+         */
+        void send() throws IOException {
+            while (!outgoing.isEmpty()) {
+                ByteBuffer reply = outgoing.peek();
+                channel.write(reply);
+                if (reply.hasRemaining()) {
+                    break;
+                }
+                outgoing.poll();
+            }
+            updateInterest();
+            closeIfFinished();
+        }
+
+        /**
+         * Reads only while the client is not too far ahead, and waits to write only while a reply is part-sent.
+         */
+        private void updateInterest() {
+            if (!key.isValid()) {
+                return;
+            }
+            int interest = 0;
+            if (!isInputDone && inFlight.size() < MAX_IN_FLIGHT) {
+                interest |= SelectionKey.OP_READ;
+            }
+            if (!outgoing.isEmpty()) {
+                interest |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(interest);
+        }
+
+        private void closeIfFinished() {
+            if (isInputDone && inFlight.isEmpty() && outgoing.isEmpty()) {
+                close();
+            }
+        }
+
+        void close() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing more can be done with a connection that fails to close
+            }
+            Kif.closeSession(session);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package kif;
+
+/**
+ * A source of commands, such as the GUI or a script, which keeps its own undo and redo history
+ * so that sessions running side by side never undo each other's commands.
+ * A session must be closed when it ends, to delete any of its history that was spilled to disk.
+ */
+class Session implements AutoCloseable {
+
+    final History history = new History();
+
+    /** The name of the workspace the session's commands work on. */
+    String workspaceName = Workspace.DEFAULT_NAME;
+
+    /** The number of tasks on each page of the list, kept until the session asks for another size. */
+    int listPageSize = Task.DEFAULT_LIST_PAGE_SIZE;
+
+    /** The page following the one the session listed last, or 0 if that was the last page. */
+    int nextListPage;
+
+    /** Why the session's last command failed, or null if it succeeded. */
+    Exception lastFailure;
+
+    /** Run when the session says bye, such as to close the window it came from. */
+    Runnable exitHook = () -> {
+    };
+
+    /**
+     * Forgets the session's history and deletes the file holding any of it.
+     */
+    @Override
+    public void close() {
+        history.close();
+    }
+}
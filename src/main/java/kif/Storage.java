@@ -1,65 +1,462 @@
 package kif;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
 
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Scanner;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * The {@code Storage} class handles file operations for saving and retrieving user tasks.
  * It manages reading, writing, updating, and deleting tasks from a persistent storage file.
+ * The files belong to the {@link Workspace} bound to the calling thread, while the backend and
+ * durability settings are shared by every workspace.
+ *
+ * <p>Each line of {@code tasks.txt} carries a checksum (see {@link Checksums}). The file is only
+ * rewritten by writing a new copy, forcing it to disk and renaming it over the old one, so a crash
+ * leaves either the old list or the new one. Appends can still be cut short, which leaves a torn
+ * last line; loading cuts it off the file, without rewriting the rest.
  */
 public class Storage {
 
-    private static final String FILE_PATH = "tasks.txt";
+    private static final String FILE_NAME = "tasks.txt";
+    private static final String JOURNAL_NAME = "tasks.journal";
+    private static final String BINARY_NAME = "tasks.bin";
+    private static final String BACKUP_SUFFIX = ".bak";
+    // the journal uses ".tmp" for its snapshots, which it treats as committed when found on startup
+    private static final String REWRITE_SUFFIX = ".new";
+    private static final long JOURNAL_COMPACTION_THRESHOLD = Long.getLong("kif.journal.threshold", 1 << 20);
     public static final String KEYWORD = "kifReservedKeyword";
 
     /**
-     * Loads user tasks from the saved file.
+     * Represents the available storage backends.
+     * {@code TEXT} rewrites {@code tasks.txt} on every edit, {@code JOURNAL} appends edits to
+     * {@code tasks.journal} on top of it, and {@code BINARY} keeps tasks in a memory-mapped {@code tasks.bin}.
+     */
+    public enum Backend { TEXT, JOURNAL, BINARY }
+
+    /**
+     * Represents how soon saved changes must reach the disk.
+     * {@code PER_COMMAND} forces every change to the device before the command finishes, as does
+     * {@code BATCHED}, except that changes made while a force is in progress share the next one.
+     * {@code OS_BUFFERED} groups changes made within a few milliseconds into one write and leaves
+     * flushing to the operating system, so a crash may lose the last of them.
+     */
+    public enum Durability { PER_COMMAND, BATCHED, OS_BUFFERED }
+
+    private static Backend backend = Backend.valueOf(System.getProperty("kif.storage", "text").toUpperCase());
+    private static boolean isLazyLoading = Boolean.getBoolean("kif.lazy");
+    private static boolean isParallelLoading = Boolean.getBoolean("kif.parallel");
+    private static Durability durability =
+            Durability.valueOf(System.getProperty("kif.durability", "per_command").toUpperCase());
+
+    /**
+     * Selects the storage backend. Takes effect for tasks loaded or written afterwards.
+     *
+     * @param newBackend The backend to use.
+     */
+    public static void setBackend(Backend newBackend) {
+        backend = newBackend;
+    }
+
+    /**
+     * Selects the directory holding the current workspace's task files, closing any files open in the old one.
+     * Takes effect for tasks loaded or written afterwards.
+     *
+     * @param directory The directory to use; the empty path means the working directory.
+     * @throws IOException If changes still waiting to be written cannot be saved.
+     */
+    static void setDataDirectory(Path directory) throws IOException {
+        closeFiles();
+        Workspace.current().dataDirectory = directory;
+    }
+
+    /**
+     * Saves everything still waiting to be written for a workspace, deferred changes included,
+     * and closes its task files, so that the workspace can be dropped from memory or the program can exit.
+     * The files are opened again if it is used afterwards.
+     *
+     * @param workspace The workspace to close.
+     * @throws IOException If changes still waiting to be written cannot be saved.
+     */
+    static void closeWorkspace(Workspace workspace) throws IOException {
+        Workspace previous = Workspace.bind(workspace);
+        try {
+            stopDeferringWrites();
+            closeFiles();
+        } finally {
+            Workspace.restore(previous);
+        }
+    }
+
+    private static void closeFiles() throws IOException {
+        Workspace workspace = Workspace.current();
+        closeTaskWriter();
+        if (workspace.journal != null) {
+            workspace.journal.close();
+            workspace.journal = null;
+        }
+        if (workspace.binaryStorage != null) {
+            workspace.binaryStorage.close();
+            workspace.binaryStorage = null;
+        }
+    }
+
+    private static Path filePath() {
+        return Workspace.current().dataDirectory.resolve(FILE_NAME);
+    }
+
+    private static Path binaryPath() {
+        return Workspace.current().dataDirectory.resolve(BINARY_NAME);
+    }
+
+    /**
+     * Enables or disables lazy loading, in which only the binary store's header is read at startup
+     * and tasks are created page by page as they are accessed. Has no effect on the text backends.
+     *
+     * @param isEnabled Whether tasks should be loaded lazily.
+     */
+    public static void setLazyLoading(boolean isEnabled) {
+        isLazyLoading = isEnabled;
+    }
+
+    /**
+     * Enables or disables parallel loading, in which {@code tasks.txt} is cut into chunks that are
+     * decoded on the fork/join pool. Worthwhile for large files only.
+     *
+     * @param isEnabled Whether the task file should be decoded in parallel.
+     */
+    public static void setParallelLoading(boolean isEnabled) {
+        isParallelLoading = isEnabled;
+    }
+
+    /**
+     * Selects how soon saved changes must reach the disk. Takes effect for changes made afterwards.
+     *
+     * @param newDurability The durability to use.
+     */
+    public static void setDurability(Durability newDurability) {
+        Workspace workspace = Workspace.current();
+        closeTaskWriter();
+        durability = newDurability;
+        if (workspace.journal != null) {
+            try {
+                workspace.journal.setDurability(newDurability);
+            } catch (IOException e) {
+                throw new RuntimeException("Error writing to task journal.", e);
+            }
+        }
+        if (workspace.binaryStorage != null) {
+            // reopened with the new durability on its next use
+            try {
+                workspace.binaryStorage.close();
+                workspace.binaryStorage = null;
+            } catch (IOException e) {
+                throw new RuntimeException("Error writing to binary task file.", e);
+            }
+        }
+    }
+
+    /**
+     * Starts keeping changes in memory only, until they are flushed or deferring is stopped.
+     * Used to apply many commands at once without a file write for each of them.
+     * Any tasks not yet loaded are loaded first, since deferred changes leave the files out of step with the list.
+     */
+    public static void deferWrites() {
+        Task.loadAllTasks();
+        Workspace.current().isDeferringWrites = true;
+    }
+
+    /**
+     * Saves every change deferred so far by writing out the whole task list in one go.
+     *
+     * @throws IOException If the tasks cannot be saved.
+     */
+    public static void flushDeferredWrites() throws IOException {
+        Workspace workspace = Workspace.current();
+        if (!workspace.hasDeferredWrites) {
+            return;
+        }
+        switch (backend) {
+        case TEXT -> {
+            closeTaskWriter();
+            writeAllLines(captureSnapshot().get());
+        }
+        case JOURNAL -> writeJournalledSnapshot();
+        case BINARY -> writeBinarySnapshot();
+        }
+        workspace.hasDeferredWrites = false;
+    }
+
+    /**
+     * Flushes any deferred changes and goes back to saving each change as it is made.
+     *
+     * @throws IOException If the tasks cannot be saved.
+     */
+    public static void stopDeferringWrites() throws IOException {
+        flushDeferredWrites();
+        Workspace.current().isDeferringWrites = false;
+    }
+
+    /**
+     * Folds the current task list into the journal's snapshot, waiting until it is written.
+     */
+    private static void writeJournalledSnapshot() throws IOException {
+        Workspace workspace = Workspace.current();
+        if (workspace.journal == null) {
+            workspace.journal = newJournal();
+        }
+        try {
+            // a compaction already running holds an older snapshot, so let it finish first
+            workspace.journal.awaitCompaction();
+            workspace.journal.compact(captureSnapshot());
+            workspace.journal.awaitCompaction();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the task snapshot.", e);
+        }
+    }
+
+    /**
+     * Rebuilds the binary store from the current task list and swaps it in.
+     */
+    private static void writeBinarySnapshot() throws IOException {
+        Workspace workspace = Workspace.current();
+        Path temporaryPath = Path.of(binaryPath() + ".tmp");
+        Files.deleteIfExists(temporaryPath);
+        try (BinaryStorage store = BinaryStorage.open(temporaryPath, Durability.OS_BUFFERED)) {
+            for (Task task : Task.getAllTasks()) {
+                store.append(task);
+            }
+        }
+        if (workspace.binaryStorage != null) {
+            workspace.binaryStorage.close();
+            workspace.binaryStorage = null;
+        }
+        Files.move(temporaryPath, binaryPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads user tasks from the saved file, replaying the journal on top of it in journal mode.
      */
     public static void initialiseUserTasks() {
-        File file = new File(FILE_PATH);
+        switch (backend) {
+        case TEXT -> loadTaskFile();
+        case JOURNAL -> loadJournalledTaskFile();
+        case BINARY -> loadBinaryTaskFile();
+        }
+    }
 
-        if (!file.exists()) return;
+    private static void loadJournalledTaskFile() {
+        Workspace workspace = Workspace.current();
+        try {
+            workspace.journal = newJournal();
+            workspace.journal.recoverSnapshot();
+            loadTaskFile();
+            workspace.journal.replay(Storage::applyJournalRecord);
+            compactJournalIfNeeded();
+        } catch (IOException e) {
+            System.err.println("Error reading task journal: " + e.getMessage());
+        }
+    }
 
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                parseAndAddTask(scanner.nextLine());
+    /**
+     * Loads tasks from the binary store, converting {@code tasks.txt} into it on first use.
+     */
+    private static void loadBinaryTaskFile() {
+        try {
+            if (!Files.exists(binaryPath()) && Files.exists(filePath())) {
+                convertToBinary();
             }
-        } catch (FileNotFoundException e) {
-            System.err.println("No saved task file.");
-        } catch (KifException e) {
+            BinaryStorage store = getBinaryStorage();
+            if (isLazyLoading) {
+                Task.loadTasksLazily(store.size(), store::readTask);
+                return;
+            }
+            for (int i = 1; i <= store.size(); i++) {
+                Task.addTask(store.readTask(i));
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading binary task file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Converts {@code tasks.txt} into {@code tasks.bin}, replacing any existing binary store.
+     *
+     * @return The number of tasks converted.
+     * @throws IOException If either file cannot be accessed.
+     */
+    public static int convertToBinary() throws IOException {
+        Workspace workspace = Workspace.current();
+        if (workspace.binaryStorage != null) {
+            workspace.binaryStorage.close();
+            workspace.binaryStorage = null;
+        }
+        return BinaryStorage.convert(filePath(), binaryPath());
+    }
+
+    private static BinaryStorage getBinaryStorage() throws IOException {
+        Workspace workspace = Workspace.current();
+        if (workspace.binaryStorage == null) {
+            workspace.binaryStorage = BinaryStorage.open(binaryPath(), durability);
+        }
+        return workspace.binaryStorage;
+    }
+
+    private static Journal newJournal() {
+        return new Journal(filePath().toString(), Workspace.current().dataDirectory.resolve(JOURNAL_NAME).toString(), JOURNAL_COMPACTION_THRESHOLD, durability);
+    }
+
+    private static void loadTaskFile() {
+        closeTaskWriter();
+        Path path = filePath();
+
+        try {
+            // a rewrite that never reached its rename left the old file in place
+            Files.deleteIfExists(Path.of(path + REWRITE_SUFFIX));
+            if (!Files.exists(path)) return;
+
+            List<TaskDecoder.MalformedLine> malformedLines = isParallelLoading
+                    ? TaskDecoder.decodeFileInParallel(path, Task::addTask)
+                    : TaskDecoder.decodeFile(path, Task::addTask);
+            truncateTornTail(path, malformedLines);
+            if (!malformedLines.isEmpty()) {
+                skipMalformedLines(path, malformedLines);
+            }
+        } catch (IOException e) {
             System.err.println("Error reading task file: " + e.getMessage());
         }
     }
 
-    private static void parseAndAddTask(String line) throws KifException {
-        String[] details = line.split(KEYWORD);
-        Task task;
+    /**
+     * Cuts a bad last line off the task file if it looks like an append cut short by a crash: one that
+     * has a checksum, or no newline. Only the tail is touched, so this costs the same however long
+     * the file is. The line is removed from the malformed lines.
+     */
+    private static void truncateTornTail(Path path, List<TaskDecoder.MalformedLine> malformedLines)
+            throws IOException {
+        if (malformedLines.isEmpty()) {
+            return;
+        }
+        TaskDecoder.MalformedLine last = malformedLines.get(malformedLines.size() - 1);
+        if (!last.isLast() || (GroupCommitWriter.endsWithNewline(path) && !Checksums.isPresent(last.line()))) {
+            return;
+        }
 
-        switch (details.length) {
-        case 2 -> task = new Task.ToDo(details[1]);
-        case 3 -> task = new Task.Deadline(details[1], details[2]);
-        case 4 -> task = new Task.Event(details[1], details[2], details[3]);
-        default -> throw new KifException("Invalid task format: " + line);
+        System.err.println("Discarding incomplete task on line " + last.lineNumber() + ": " + last.line());
+        malformedLines.remove(malformedLines.size() - 1);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(last.offset());
+            channel.force(true);
         }
+    }
+
+    /**
+     * Reports the lines that could not be loaded, then sets the original file aside and rewrites it
+     * without them, so that the lines of the file keep matching the positions of the loaded tasks.
+     */
+    private static void skipMalformedLines(Path path, List<TaskDecoder.MalformedLine> malformedLines)
+            throws IOException {
+        for (TaskDecoder.MalformedLine malformed : malformedLines) {
+            System.err.println("Skipping malformed task on line " + malformed.lineNumber() + ": " + malformed.line());
+        }
+        Path backupPath = Path.of(filePath() + BACKUP_SUFFIX);
+        Files.copy(path, backupPath, StandardCopyOption.REPLACE_EXISTING);
+        writeAllLines(captureSnapshot().get());
+        System.err.println("The original task file was saved as " + backupPath);
+    }
 
-        task.isDone = Boolean.parseBoolean(details[0].trim());
-        Task.addTask(task);
+    private static void parseAndAddTask(String line) throws KifException {
+        Task.addTask(parseTask(line));
+    }
+
+    /**
+     * Parses a single line of the task file.
+     *
+     * @param line The line to parse.
+     * @return The parsed task.
+     * @throws KifException If the line is not a valid task.
+     */
+    static Task parseTask(String line) throws KifException {
+        return TaskDecoder.decode(line);
+    }
+
+    /**
+     * Applies a replayed journal record to the in-memory task list.
+     */
+    private static void applyJournalRecord(Journal.Operation operation, String payload) {
+        try {
+            switch (operation) {
+            case ADD -> parseAndAddTask(payload);
+            case MARK -> Task.setDone(Integer.parseInt(payload), true);
+            case UNMARK -> Task.setDone(Integer.parseInt(payload), false);
+            case DELETE -> Task.removeTask(Integer.parseInt(payload));
+            }
+        } catch (KifException | IndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println("Skipping invalid journal record: " + operation + " " + payload);
+        }
     }
 
     /**
      * Edits an existing task in the file. Supports marking, unmarking, or deleting tasks.
+     * In journal mode the edit is appended to the journal instead, and in binary mode it is
+     * applied in place. While writes are deferred, the edit is left to the next flush.
      *
      * @param lineNumber The line number of the task in the file (1-based index).
      * @param operation  The operation to perform (MARK, UNMARK, DELETE).
      * @throws IndexOutOfBoundsException If the specified line number is invalid.
      */
     public static void editTaskTxt(int lineNumber, Kif.UserCommand operation) {
+        Workspace workspace = Workspace.current();
+        if (workspace.isDeferringWrites) {
+            workspace.hasDeferredWrites = true;
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            switch (backend) {
+            case JOURNAL -> {
+                if (lineNumber < 1) {
+                    throw new IndexOutOfBoundsException("Invalid line number");
+                }
+                appendToJournal(Journal.Operation.valueOf(operation.name()), String.valueOf(lineNumber));
+            }
+            case BINARY -> editBinaryTask(lineNumber, operation);
+            case TEXT -> editTextTask(lineNumber, operation);
+            }
+        } finally {
+            Metrics.addPhaseTime(Metrics.Phase.STORAGE, startNanos);
+        }
+    }
+
+    private static void editBinaryTask(int lineNumber, Kif.UserCommand operation) {
+        try {
+            BinaryStorage store = getBinaryStorage();
+            switch (operation) {
+            case MARK -> store.setDone(lineNumber, true);
+            case UNMARK -> store.setDone(lineNumber, false);
+            case DELETE -> store.delete(lineNumber);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error updating binary task file.", e);
+        }
+    }
+
+    private static void editTextTask(int lineNumber, Kif.UserCommand operation) {
+        closeTaskWriter();
         List<String> lines = readAllLines();
 
         if (lineNumber < 1 || lineNumber > lines.size()) {
@@ -67,40 +464,81 @@ public class Storage {
         }
 
         switch (operation) {
-        case MARK -> lines.set(lineNumber - 1, lines.get(lineNumber - 1).replaceFirst("false", "true"));
-        case UNMARK -> lines.set(lineNumber - 1, lines.get(lineNumber - 1).replaceFirst("true", "false"));
+        case MARK -> lines.set(lineNumber - 1, setDone(lines.get(lineNumber - 1), true));
+        case UNMARK -> lines.set(lineNumber - 1, setDone(lines.get(lineNumber - 1), false));
         case DELETE -> lines.remove(lineNumber - 1);
         }
 
         writeAllLines(lines);
     }
 
+    /**
+     * Changes the completion status in a line of the task file, giving it a fresh checksum.
+     */
+    private static String setDone(String line, boolean isDone) {
+        try {
+            String text = Checksums.strip(line);
+            return Checksums.append(isDone ? text.replaceFirst("false", "true") : text.replaceFirst("true", "false"));
+        } catch (KifException e) {
+            throw new RuntimeException("Error updating task file.", e);
+        }
+    }
+
     /**
      * Reads all lines from the task file.
      */
     private static List<String> readAllLines() {
         List<String> lines = new ArrayList<>();
-        try (Scanner scanner = new Scanner(new File(FILE_PATH))) {
+        try (Scanner scanner = new Scanner(filePath(), StandardCharsets.UTF_8)) {
             while (scanner.hasNextLine()) {
                 lines.add(scanner.nextLine());
             }
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             System.err.println("Error: Task file not found.");
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading task file.", e);
         }
         return lines;
     }
 
     /**
      * Writes all lines back to the task file (used for editing and deleting tasks).
+     * The lines go to a new file that is forced to disk and then renamed over the old one,
+     * so that a crash part way through never leaves a half-written list.
      */
     private static void writeAllLines(List<String> lines) {
-        try (FileWriter fw = new FileWriter(FILE_PATH, false)) {
-            for (String line : lines) {
-                fw.write(line + System.lineSeparator());
+        Path path = filePath();
+        Path temporaryPath = Path.of(path + REWRITE_SUFFIX);
+        long size;
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write(System.lineSeparator());
+                }
+                writer.flush();
+                channel.force(true);
+                size = channel.size();
             }
+            replaceAtomically(temporaryPath, path);
         } catch (IOException e) {
             throw new RuntimeException("Error updating task file.", e);
         }
+        Metrics.addLinesRewritten(lines.size());
+        Metrics.addBytesWritten(size);
+    }
+
+    /**
+     * Renames a file over another in one step, where the file system allows it.
+     */
+    private static void replaceAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     /**
@@ -110,25 +548,134 @@ public class Storage {
      * @throws RuntimeException If an I/O error occurs.
      */
     public static void writeTask(Object t) {
+        Workspace workspace = Workspace.current();
         Task task = (Task) t;
-        try (FileWriter fw = new FileWriter(FILE_PATH, true)) {
-            fw.write(formatTask(task) + System.lineSeparator());
+        if (workspace.isDeferringWrites) {
             Task.addTask(task);
+            workspace.hasDeferredWrites = true;
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            switch (backend) {
+            case JOURNAL -> {
+                Task.addTask(task);
+                appendToJournal(Journal.Operation.ADD, formatTask(task, task.isDone));
+            }
+            case BINARY -> writeBinaryTask(task);
+            case TEXT -> {
+                getTaskWriter().append(Checksums.append(formatTask(task, task.isDone)));
+                Task.addTask(task);
+            }
+            }
         } catch (IOException e) {
             throw new RuntimeException("Error writing task to file.", e);
+        } finally {
+            Metrics.addPhaseTime(Metrics.Phase.STORAGE, startNanos);
+        }
+    }
+
+    private static GroupCommitWriter getTaskWriter() throws IOException {
+        Workspace workspace = Workspace.current();
+        if (workspace.taskWriter == null) {
+            workspace.taskWriter = new GroupCommitWriter(filePath(), durability);
+        }
+        return workspace.taskWriter;
+    }
+
+    /**
+     * Writes out any appended tasks still waiting to be grouped and closes the task file,
+     * so that it can be read or rewritten.
+     */
+    private static void closeTaskWriter() {
+        Workspace workspace = Workspace.current();
+        if (workspace.taskWriter == null) {
+            return;
+        }
+        try {
+            workspace.taskWriter.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing task to file.", e);
+        } finally {
+            workspace.taskWriter = null;
+        }
+    }
+
+    private static void writeBinaryTask(Task task) {
+        try {
+            getBinaryStorage().append(task);
+            Task.addTask(task);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing task to binary file.", e);
         }
     }
 
-    private static String formatTask(Task task) {
+    /**
+     * Appends a record to the journal, compacting it once it has grown past its threshold.
+     */
+    private static void appendToJournal(Journal.Operation operation, String payload) {
+        Workspace workspace = Workspace.current();
+        if (workspace.journal == null) {
+            workspace.journal = newJournal();
+        }
+
+        try {
+            workspace.journal.append(operation, payload);
+            compactJournalIfNeeded();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing to task journal.", e);
+        }
+    }
+
+    private static void compactJournalIfNeeded() throws IOException {
+        Workspace workspace = Workspace.current();
+        if (workspace.journal.shouldCompact()) {
+            workspace.journal.compact(captureSnapshot());
+        }
+    }
+
+    /**
+     * Captures the current task list so that it can be formatted off the calling thread,
+     * as lines of the task file with their checksums.
+     * Completion flags are copied eagerly since they may change before the snapshot is written.
+     */
+    private static Supplier<List<String>> captureSnapshot() {
+        List<Task> tasks = Task.getAllTasks();
+        boolean[] doneFlags = new boolean[tasks.size()];
+        for (int i = 0; i < doneFlags.length; i++) {
+            doneFlags[i] = tasks.get(i).isDone;
+        }
+
+        return () -> {
+            List<String> lines = new ArrayList<>(tasks.size());
+            for (int i = 0; i < doneFlags.length; i++) {
+                lines.add(Checksums.append(formatTask(tasks.get(i), doneFlags[i])));
+            }
+            return lines;
+        };
+    }
+
+    /**
+     * Formats a task as a line of the task file.
+     *
+     * @param task The task to format.
+     * @return The formatted line.
+     */
+    static String formatTask(Task task) {
+        return formatTask(task, task.isDone);
+    }
+
+    private static String formatTask(Task task, boolean isDone) {
         return switch (task.type) {
-            case TODO -> task.isDone + KEYWORD + task.description;
+            case TODO -> isDone + KEYWORD + task.description;
             case DEADLINE -> {
                 Task.Deadline deadline = (Task.Deadline) task;
-                yield deadline.isDone + KEYWORD + deadline.description + KEYWORD + deadline.getDeadline();
+                yield isDone + KEYWORD + deadline.description + KEYWORD + deadline.getDeadline();
             }
             case EVENT -> {
                 Task.Event event = (Task.Event) task;
-                yield event.isDone + KEYWORD + event.description + KEYWORD + event.getStart() + KEYWORD + event.getEnd();
+                yield isDone + KEYWORD + event.description + KEYWORD + event.getStart() + KEYWORD + event.getEnd();
             }
         };
     }
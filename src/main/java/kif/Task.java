@@ -1,20 +1,32 @@
 package kif;
 
-import static kif.Ui.formatMessage;
+import static kif.Messages.formatMessage;
 
 import java.time.LocalDate;
+import java.time.temporal.Temporal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntFunction;
 
 /**
  * Functions like an abstract class;
  * Has three subclasses: Todo, Deadline, and Event.
  */
 abstract class Task {
-    private static final List<Task> userTasks = new ArrayList<>();
+    /** The number of tasks shown on each page of the list, unless the user asks for another size. */
+    static final int DEFAULT_LIST_PAGE_SIZE = 50;
+
     protected String description;
-    protected boolean isDone;
+    // read by published views of the list without the command lock, so changes must be visible straight away
+    protected volatile boolean isDone;
     protected TaskType type;
+    /** Stable identifier assigned when the task joins the list; 0 until then. */
+    int id;
+    // the text last rendered, which is stale once the completion status differs from the one it shows
+    private volatile Rendering rendering;
+
+    private record Rendering(boolean isDone, String text) {
+    }
 
     /**
      * Constructs a new {@code Task}.
@@ -28,20 +40,27 @@ abstract class Task {
         this.type = type;
     }
 
+    /**
+     * Returns the task list of the workspace the calling thread is working on.
+     */
+    private static TaskList userTasks() {
+        return Workspace.current().tasks;
+    }
+
     /**
      * Returns the total number of tasks in the list.
      *
      * @return The total task count.
      */
     public static int getTotalTasks() {
-        return userTasks.size();
+        return userTasks().size();
     }
 
     /**
      * Clears all tasks from the list for the purpose of unit testing.
      */
     public static void clearTasks() {
-        userTasks.clear();
+        userTasks().clear();
     }
 
     /**
@@ -50,7 +69,50 @@ abstract class Task {
     public enum TaskType {TODO, DEADLINE, EVENT}
 
     public static void addTask(Task task) {
-        userTasks.add(task);
+        userTasks().add(task);
+    }
+
+    /**
+     * Replaces the task list with tasks that are only created when first accessed.
+     *
+     * @param count The number of stored tasks.
+     * @param loader Creates the task at a given 1-based position.
+     */
+    static void loadTasksLazily(int count, IntFunction<Task> loader) {
+        userTasks().resetLazily(count, loader);
+    }
+
+    /**
+     * Creates every task that was left to be loaded lazily.
+     */
+    static void loadAllTasks() {
+        userTasks().materializeAll();
+    }
+
+    /**
+     * Sets whether a task is done without touching storage.
+     *
+     * @param index The task index (1-based).
+     * @param isDone The new completion status.
+     */
+    static void setDone(int index, boolean isDone) {
+        userTasks().setDone(getTask(index), isDone);
+    }
+
+    /**
+     * Removes a task from the list without touching storage.
+     *
+     * @param index The task index (1-based).
+     */
+    static void removeTask(int index) {
+        userTasks().remove(index - 1);
+    }
+
+    /**
+     * Returns a copy of the task list, in order.
+     */
+    static List<Task> getAllTasks() {
+        return new ArrayList<>(userTasks());
     }
 
     /**
@@ -73,25 +135,195 @@ abstract class Task {
         return (isDone ? "X" : " ");
     }
 
+    /**
+     * Returns the task as shown to the user, reusing the text rendered last time
+     * unless the task has changed since.
+     */
     @Override
     public String toString() {
-        return String.format("[%s] %s", getStatusIcon(), description);
+        boolean isDoneNow = isDone;
+        Rendering cached = rendering;
+        if (cached == null || cached.isDone() != isDoneNow) {
+            long startNanos = System.nanoTime();
+            cached = new Rendering(isDoneNow, render(isDoneNow));
+            rendering = cached;
+            Metrics.addPhaseTime(Metrics.Phase.RENDER, startNanos);
+        }
+        return cached.text();
+    }
+
+    /**
+     * Renders the task as shown to the user.
+     *
+     * @param isDone The completion status to show.
+     * @return The rendered task.
+     */
+    protected String render(boolean isDone) {
+        return "[" + (isDone ? "X" : " ") + "] " + description;
     }
 
     /**
      * Prints the number of task the user currently has thus far.
      */
     public static String printTotalTasks() {
-        return "Now you have " + userTasks.size() + " tasks in the list.";
+        return "Now you have " + userTasks().size() + " tasks in the list.";
     }
 
     /**
      * Number and list all the tasks a user has.
      */
     public static String listUserTask() {
+        return listUserTask(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Number and list one page of the tasks a user has, noting which page it is when there are several.
+     * The page is read from the list's published view without the command lock, so other commands
+     * can carry on meanwhile.
+     *
+     * @param page The page to list (1-based).
+     * @param pageSize The number of tasks on each page.
+     */
+    public static String listUserTask(int page, int pageSize) {
+        assert page > 0 && pageSize > 0 : "Page and page size should be positive";
+
+        int from = (int) Math.min((page - 1L) * pageSize, Integer.MAX_VALUE);
+        TaskList.Snapshot snapshot = takeSnapshot(from, pageSize);
+        int pageCount = countListPages(snapshot.listSize(), pageSize);
+        if (page > Math.max(pageCount, 1)) {
+            return formatMessage("There is no page " + page + " in your list. It has " + pageCount + " pages.");
+        }
+
         StringBuilder response = new StringBuilder("Here are the tasks in your list:");
-        for (int i = 0; i < userTasks.size(); i++) {
-            response.append(System.lineSeparator()).append(i + 1).append(". ").append(userTasks.get(i));
+        int number = from + 1;
+        for (Task task : snapshot) {
+            response.append(System.lineSeparator()).append(number++).append(". ").append(task);
+        }
+        if (pageCount > 1) {
+            response.append(System.lineSeparator()).append("Page ").append(page).append(" of ").append(pageCount)
+                    .append(page < pageCount ? ". Type list " + (page + 1) + " to see the next page." : ".");
+        }
+        return formatMessage(response.toString());
+    }
+
+    /**
+     * Returns the number of pages needed to list every task.
+     *
+     * @param pageSize The number of tasks on each page.
+     */
+    static int countListPages(int pageSize) {
+        return countListPages(userTasks().size(), pageSize);
+    }
+
+    private static int countListPages(int taskCount, int pageSize) {
+        return (int) ((taskCount + (long) pageSize - 1) / pageSize);
+    }
+
+    /**
+     * Takes a snapshot of a run of the list from its published view. Tasks not yet loaded are read
+     * from storage as well, which is only trusted if no command held the lock meanwhile. Otherwise, or if
+     * the list has changed without a command to publish it, the snapshot is taken under the lock instead.
+     */
+    private static TaskList.Snapshot takeSnapshot(int from, int count) {
+        TaskList tasks = userTasks();
+        long generation = Kif.commandLock.generation();
+        boolean isCommandRunning = generation % 2 != 0;
+        TaskList.View view = tasks.published();
+        if (view != null && (isCommandRunning || !tasks.isUnpublished())) {
+            try {
+                TaskList.Snapshot snapshot = view.snapshot(from, count);
+                if (!snapshot.isLoaded() || !isCommandRunning && Kif.commandLock.generation() == generation) {
+                    return snapshot;
+                }
+            } catch (RuntimeException e) {
+                // storage was changed while tasks were read from it, so read them again under the lock
+            }
+        }
+
+        Kif.commandLock.lock();
+        try {
+            TaskList.Snapshot snapshot = tasks.snapshot(from, count);
+            tasks.publish();
+            return snapshot;
+        } finally {
+            Kif.commandLock.unlock();
+        }
+    }
+
+    /**
+     * Number and list the tasks whose descriptions contain every word of the query,
+     * keeping each task's position in the full list.
+     *
+     * @param query The words to search for; a word ending in {@code *} matches any word starting with it.
+     */
+    public static String findTasks(String query) {
+        return listTasksAt(userTasks().search(query), "Here are the matching tasks in your list:",
+                "No matching tasks found.");
+    }
+
+    /**
+     * Number and list the deadlines that are not done and are due within a date range.
+     *
+     * @param from The first date of the range, inclusive.
+     * @param to The last date of the range, inclusive.
+     */
+    public static String listDueTasks(LocalDate from, LocalDate to) {
+        String range = Parser.formatDate(from) + " and " + Parser.formatDate(to);
+        return listTasksAt(userTasks().findDueBetween(from, to), "Here are the deadlines due between " + range + ":",
+                "No deadlines are due between " + range + ".");
+    }
+
+    /**
+     * Number and list the deadlines that are not done and were due before today.
+     */
+    public static String listOverdueTasks() {
+        return listTasksAt(userTasks().findDueBefore(LocalDate.now()), "Here are your overdue deadlines:",
+                "You have no overdue deadlines.");
+    }
+
+    /**
+     * Number and list the events taking place on a date.
+     *
+     * @param date The date.
+     */
+    public static String listEventsOn(LocalDate date) {
+        String day = Parser.formatDate(date);
+        return listTasksAt(userTasks().findEventsOn(date), "Here are the events on " + day + ":",
+                "You have no events on " + day + ".");
+    }
+
+    /**
+     * Lists every pair of events whose times overlap.
+     */
+    public static String listClashingEvents() {
+        TaskList tasks = userTasks();
+        List<int[]> clashes = tasks.findClashingEvents();
+        if (clashes.isEmpty()) {
+            return formatMessage("None of your events clash.");
+        }
+
+        StringBuilder response = new StringBuilder("Here are the events that clash:");
+        for (int[] clash : clashes) {
+            response.append(System.lineSeparator())
+                    .append(clash[0] + 1).append(". ").append(tasks.get(clash[0]))
+                    .append(" clashes with ")
+                    .append(clash[1] + 1).append(". ").append(tasks.get(clash[1]));
+        }
+        return formatMessage(response.toString());
+    }
+
+    /**
+     * Lists the tasks at the given positions, numbered by their positions in the full list.
+     */
+    private static String listTasksAt(int[] positions, String header, String emptyMessage) {
+        if (positions.length == 0) {
+            return formatMessage(emptyMessage);
+        }
+
+        TaskList tasks = userTasks();
+        StringBuilder response = new StringBuilder(header);
+        for (int position : positions) {
+            response.append(System.lineSeparator()).append(position + 1).append(". ").append(tasks.get(position));
         }
         return formatMessage(response.toString());
     }
@@ -104,7 +336,7 @@ abstract class Task {
      */
     public static String markTask(int index) {
         Task task = getTask(index);
-        task.isDone = true;
+        setDone(index, true);
         Storage.editTaskTxt(index, Kif.UserCommand.MARK);
         return formatMessage("Nice! I've marked this task as done:", task.toString());
     }
@@ -117,7 +349,7 @@ abstract class Task {
      */
     public static String unmarkTask(int index) {
         Task task = getTask(index);
-        task.isDone = false;
+        setDone(index, false);
         Storage.editTaskTxt(index, Kif.UserCommand.UNMARK);
         return formatMessage("OK, I've marked this task as not done yet:", task.toString());
     }
@@ -130,7 +362,7 @@ abstract class Task {
      */
     public static String deleteTask(int index) {
         Task task = getTask(index);
-        userTasks.remove(index - 1);
+        removeTask(index);
         Storage.editTaskTxt(index, Kif.UserCommand.DELETE);
         return formatMessage("Noted. I've removed this task:", task.toString(), printTotalTasks());
     }
@@ -142,7 +374,7 @@ abstract class Task {
      * @return The task at the given index.
      */
     public static Task getTask(int index) {
-        return userTasks.get(index - 1);
+        return userTasks().get(index - 1);
     }
 
     /**
@@ -152,13 +384,19 @@ abstract class Task {
      * @return The 1-based index of the task, or -1 if not found.
      */
     public static int getTaskIndex(Task t) {
-        for (int index = 0; index < userTasks.size(); index++) {
-            if (userTasks.get(index).equals(t)) {
-                return index + 1;
-            }
-        }
-        // not found
-        return -1;
+        int index = userTasks().indexOf(t);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * Retrieves the index of the task with the given id.
+     *
+     * @param id The stable id of the task.
+     * @return The 1-based index of the task, or -1 if it is no longer in the list.
+     */
+    public static int getTaskIndexById(int id) {
+        int index = userTasks().indexOfId(id);
+        return index < 0 ? -1 : index + 1;
     }
 
     /**
@@ -174,6 +412,11 @@ abstract class Task {
             this.by = Parser.parseDate(by);
         }
 
+        Deadline(String description, LocalDate by) {
+            super(description, TaskType.DEADLINE);
+            this.by = by;
+        }
+
         public LocalDate getDeadline() {
             return this.by;
         }
@@ -193,8 +436,8 @@ abstract class Task {
         }
 
         @Override
-        public String toString() {
-            return "[D]" + super.toString() + " (by: " + Parser.formatDate(by) + ")";
+        protected String render(boolean isDone) {
+            return "[D]" + super.render(isDone) + " (by: " + Parser.formatDate(by) + ")";
         }
     }
 
@@ -204,11 +447,19 @@ abstract class Task {
     public static class Event extends Task {
         private final String start;
         private final String end;
+        private final Temporal startTime;
+        private final Temporal endTime;
 
+        /**
+         * Constructs an event, parsing its start and end into dates or date-times where possible.
+         * Parsed values are kept in their canonical ISO form; anything else is kept as free text.
+         */
         public Event(String description, String start, String end) {
             super(description, TaskType.EVENT);
-            this.start = start;
-            this.end = end;
+            this.startTime = Parser.parseEventTime(start);
+            this.endTime = Parser.parseEventTime(end);
+            this.start = startTime == null ? start : startTime.toString();
+            this.end = endTime == null ? end : endTime.toString();
         }
 
         public String getStart() {
@@ -219,6 +470,20 @@ abstract class Task {
             return this.end;
         }
 
+        /**
+         * Returns the parsed start as a {@code LocalDate} or {@code LocalDateTime}, or null if it is free text.
+         */
+        public Temporal getStartTime() {
+            return this.startTime;
+        }
+
+        /**
+         * Returns the parsed end as a {@code LocalDate} or {@code LocalDateTime}, or null if it is free text.
+         */
+        public Temporal getEndTime() {
+            return this.endTime;
+        }
+
         public static Event create(String description) {
             String[] details = Parser.extractEventDetails(description);
             Event eventTask = new Event(details[0], details[1], details[2]);
@@ -233,8 +498,9 @@ abstract class Task {
         }
 
         @Override
-        public String toString() {
-            return "[E]" + super.toString() + " (from: " + start + " to: " + end + ")";
+        protected String render(boolean isDone) {
+            return "[E]" + super.render(isDone) + " (from: " + Parser.formatEventTime(startTime, start)
+                    + " to: " + Parser.formatEventTime(endTime, end) + ")";
         }
     }
 
@@ -260,8 +526,8 @@ abstract class Task {
         }
 
         @Override
-        public String toString() {
-            return "[T]" + super.toString();
+        protected String render(boolean isDone) {
+            return "[T]" + super.render(isDone);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,337 @@
+package kif;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Decodes lines of the task file into tasks.
+ *
+ * <p>Fields are found with {@code indexOf} on the reserved keyword rather than a regex split, and
+ * the file is streamed through one large buffer, cutting lines at newline bytes before decoding
+ * them from UTF-8. Because a line can be decoded from any range of bytes that starts and ends on
+ * a newline boundary, a large file can also be cut into chunks at newlines and the chunks decoded
+ * in parallel, with the results handed over in file order once every chunk is done.
+ *
+ * <p>Lines that are not valid tasks, or whose checksum does not match, are skipped and returned
+ * with their line numbers and offsets, so that one bad line never costs the tasks after it. Once
+ * lines with checksums have been seen, a last line with neither a checksum nor a newline is taken to
+ * be a write cut short by a crash and is returned as malformed too.
+ */
+class TaskDecoder {
+
+    /**
+     * Represents a line of the task file that could not be decoded.
+     *
+     * @param lineNumber The 1-based line number.
+     * @param line The text of the line.
+     * @param offset The offset in the file of the line's first byte.
+     * @param isLast Whether nothing follows the line in the file.
+     */
+    record MalformedLine(long lineNumber, String line, long offset, boolean isLast) {
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int CHUNK_SIZE = 4 << 20;
+    private static final int BOUNDARY_SCAN_SIZE = 4096;
+    private static final int MAX_FIELDS = 4;
+    private static final String TRUE = "true";
+
+    /**
+     * Decodes a single line of the task file.
+     *
+     * @param line The line to decode.
+     * @return The decoded task.
+     * @throws KifException If the line is not a valid task.
+     */
+    static Task decode(String line) throws KifException {
+        line = Checksums.strip(line);
+        String[] fields = new String[MAX_FIELDS];
+        int fieldCount = 0;
+        int start = 0;
+        while (true) {
+            int end = line.indexOf(Storage.KEYWORD, start);
+            if (fieldCount == MAX_FIELDS) {
+                throw new KifException("Invalid task format: " + line);
+            }
+            fields[fieldCount++] = line.substring(start, end < 0 ? line.length() : end);
+            if (end < 0) {
+                break;
+            }
+            start = end + Storage.KEYWORD.length();
+        }
+        // like String.split, ignore empty trailing fields
+        while (fieldCount > 0 && fields[fieldCount - 1].isEmpty()) {
+            fieldCount--;
+        }
+
+        Task task = switch (fieldCount) {
+            case 2 -> new Task.ToDo(fields[1]);
+            case 3 -> new Task.Deadline(fields[1], fields[2]);
+            case 4 -> new Task.Event(fields[1], fields[2], fields[3]);
+            default -> throw new KifException("Invalid task format: " + line);
+        };
+        task.isDone = fields[0].trim().equalsIgnoreCase(TRUE);
+        return task;
+    }
+
+    /**
+     * Decodes every line of a file in order, streaming it through a buffer.
+     *
+     * @param path The task file.
+     * @param sink Receives each task in file order.
+     * @return The lines that could not be decoded, in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<MalformedLine> decodeFile(Path path, Consumer<Task> sink) throws IOException {
+        LineDecoder decoder = new LineDecoder(sink, 0, true);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            boolean isAtEnd = false;
+            while (!isAtEnd) {
+                isAtEnd = channel.read(buffer) < 0 || channel.position() == channel.size();
+                int end = buffer.position();
+                int lineStart = decoder.decodeLines(buffer.array(), 0, end, isAtEnd);
+
+                if (lineStart == 0 && end == buffer.capacity()) {
+                    // a single line fills the buffer, so make room for the rest of it
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    buffer = larger.put(buffer);
+                } else {
+                    buffer.flip().position(lineStart);
+                    buffer.compact();
+                }
+            }
+        }
+        return decoder.malformedLines;
+    }
+
+    /**
+     * Decodes every line of a file, cutting it into chunks at newlines and decoding the chunks
+     * in parallel on the common fork/join pool.
+     *
+     * @param path The task file.
+     * @param sink Receives each task in file order, on the calling thread, once all chunks are decoded.
+     * @return The lines that could not be decoded, in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<MalformedLine> decodeFileInParallel(Path path, Consumer<Task> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel);
+            int chunkCount = boundaries.length - 1;
+            List<List<Task>> chunkTasks = new ArrayList<>(chunkCount);
+            List<LineDecoder> decoders = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                List<Task> tasks = new ArrayList<>();
+                chunkTasks.add(tasks);
+                decoders.add(new LineDecoder(tasks::add, boundaries[i], i == chunkCount - 1));
+            }
+
+            try {
+                ForkJoinPool.commonPool().invoke(new ChunkAction(channel, boundaries, decoders, 0, chunkCount));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            List<MalformedLine> malformedLines = new ArrayList<>();
+            long linesBefore = 0;
+            boolean hasSeenChecksum = false;
+            for (int i = 0; i < chunkCount; i++) {
+                LineDecoder decoder = decoders.get(i);
+                List<Task> tasks = chunkTasks.get(i);
+                List<MalformedLine> chunkMalformedLines = new ArrayList<>(decoder.malformedLines);
+                if (hasSeenChecksum && decoder.uncheckedLastLine != null) {
+                    // the chunk could not tell on its own that lines with checksums came before its last line
+                    tasks.remove(tasks.size() - 1);
+                    chunkMalformedLines.add(decoder.uncheckedLastLine);
+                }
+                tasks.forEach(sink);
+                for (MalformedLine malformed : chunkMalformedLines) {
+                    malformedLines.add(new MalformedLine(linesBefore + malformed.lineNumber(), malformed.line(),
+                            malformed.offset(), malformed.isLast()));
+                }
+                linesBefore += decoder.lineCount;
+                hasSeenChecksum |= decoder.hasSeenChecksum;
+            }
+            return malformedLines;
+        }
+    }
+
+    /**
+     * Cuts the file into chunks of roughly {@code CHUNK_SIZE} bytes, moving each cut to just past
+     * the next newline so that every chunk holds whole lines.
+     *
+     * @return The offsets where the chunks start, followed by the size of the file.
+     */
+    private static long[] findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer window = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long next = CHUNK_SIZE;
+        while (next < size) {
+            long boundary = findLineStart(channel, next, window);
+            if (boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            next = boundary + CHUNK_SIZE;
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Returns the offset just past the first newline at or after the given offset,
+     * or the size of the file if there is none.
+     */
+    private static long findLineStart(FileChannel channel, long from, ByteBuffer window) throws IOException {
+        long position = from;
+        while (true) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read < 0) {
+                return channel.size();
+            }
+            byte[] bytes = window.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Decodes a range of chunks, splitting it in half until single chunks are left.
+     */
+    private static class ChunkAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final List<LineDecoder> decoders;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ChunkAction(FileChannel channel, long[] boundaries, List<LineDecoder> decoders, int fromChunk, int toChunk) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.decoders = decoders;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ChunkAction(channel, boundaries, decoders, fromChunk, middle),
+                        new ChunkAction(channel, boundaries, decoders, middle, toChunk));
+                return;
+            }
+
+            long start = boundaries[fromChunk];
+            ByteBuffer buffer = ByteBuffer.allocate((int) (boundaries[fromChunk + 1] - start));
+            try {
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                    // positional reads leave the channel free for the other chunks
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            decoders.get(fromChunk).decodeLines(buffer.array(), 0, buffer.position(), true);
+        }
+    }
+
+    /**
+     * Decodes consecutive lines, counting them and collecting the ones that are malformed.
+     */
+    private static class LineDecoder {
+
+        private final Consumer<Task> sink;
+        private final boolean isEndOfFile;
+        private final List<MalformedLine> malformedLines = new ArrayList<>();
+        private long lineCount;
+        private long offset;
+        private boolean hasSeenChecksum;
+        // an unterminated last line without a checksum, decoded only because none had been seen before it
+        private MalformedLine uncheckedLastLine;
+
+        /**
+         * Creates a decoder for the lines of a range of the file.
+         *
+         * @param sink Receives each task in order.
+         * @param offset The offset in the file where the range starts.
+         * @param isEndOfFile Whether the range runs to the end of the file.
+         */
+        LineDecoder(Consumer<Task> sink, long offset, boolean isEndOfFile) {
+            this.sink = sink;
+            this.offset = offset;
+            this.isEndOfFile = isEndOfFile;
+        }
+
+        /**
+         * Decodes the complete lines in a range of bytes.
+         *
+         * @param bytes The bytes holding the lines.
+         * @param from The offset of the first line.
+         * @param to The offset just past the last byte available.
+         * @param isLastLineComplete Whether bytes after the last newline form a line of their own,
+         *     rather than the start of a line that continues past {@code to}.
+         * @return The offset of the first byte not decoded.
+         */
+        int decodeLines(byte[] bytes, int from, int to, boolean isLastLineComplete) {
+            boolean isAtEnd = isLastLineComplete && isEndOfFile;
+            int lineStart = from;
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == '\n') {
+                    decodeLine(bytes, lineStart, i, isAtEnd && i + 1 == to, true);
+                    lineStart = i + 1;
+                }
+            }
+            if (isLastLineComplete && lineStart < to) {
+                decodeLine(bytes, lineStart, to, isAtEnd, false);
+                lineStart = to;
+            }
+            return lineStart;
+        }
+
+        private void decodeLine(byte[] bytes, int start, int end, boolean isLast, boolean isTerminated) {
+            lineCount++;
+            long lineOffset = offset;
+            offset += end - start + 1;
+            String line = toLine(bytes, start, end);
+            boolean hasChecksum = Checksums.isPresent(line);
+            try {
+                if (!isTerminated && !hasChecksum && hasSeenChecksum) {
+                    throw new KifException("Incomplete task: " + line);
+                }
+                sink.accept(decode(line));
+                if (!isTerminated && !hasChecksum) {
+                    uncheckedLastLine = new MalformedLine(lineCount, line, lineOffset, isLast);
+                }
+            } catch (KifException e) {
+                malformedLines.add(new MalformedLine(lineCount, line, lineOffset, isLast));
+            }
+            hasSeenChecksum |= hasChecksum;
+        }
+
+        private static String toLine(byte[] bytes, int start, int end) {
+            int lineEnd = end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+            return new String(bytes, start, lineEnd - start, StandardCharsets.UTF_8);
+        }
+    }
+}
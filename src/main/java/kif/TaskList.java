@@ -0,0 +1,713 @@
+package kif;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * The ordered list of the user's tasks.
+ *
+ * <p>Tasks are kept in append-only slots. A deleted task leaves a dead slot behind, and a Fenwick
+ * tree over the live slots translates between list positions and slots, so lookups by position,
+ * lookups by task identity and deletes from anywhere in the list all take O(log N).
+ * Dead slots are squeezed out once they outnumber the live ones.
+ *
+ * <p>Every task is given a stable id when it joins the list, which maps back to its slot.
+ * Tasks may also be left unmaterialized at load time, in which case they are created on demand
+ * by a loader, one page at a time, the first time any task on that page is accessed.
+ *
+ * <p>The list itself is not thread-safe, but it publishes views of itself that are. The slots are
+ * kept in page-sized chunks, and a published view shares them; the first change to a shared chunk
+ * copies just that chunk. Publishing copies only the table of chunks, so it costs O(N / page size),
+ * and it is done when the command lock is released (see {@link CommandLock}), once for every list
+ * changed while it was held. Readers can then list any page from the latest view without the lock.
+ */
+class TaskList extends AbstractList<Task> {
+
+    static final int PAGE_SIZE = 256;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // lists changed since they were last published, compared by identity since lists compare by content
+    private static final Set<TaskList> unpublished = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Task[][] slots = new Task[1][PAGE_SIZE];
+    private boolean[][] isLive = new boolean[1][PAGE_SIZE];
+    private int[] chunkLiveCounts = new int[1];
+    // chunks a published view refers to, which must be copied before they are changed
+    private boolean[] isChunkPublished = new boolean[1];
+    private int[] liveCounts = new int[PAGE_SIZE + 1];
+    private final Map<Integer, Integer> idToSlot = new HashMap<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final DeadlineIndex deadlineIndex = new DeadlineIndex();
+    private final EventIndex eventIndex = new EventIndex();
+    private int slotCount;
+    private int liveCount;
+    private int nextId = 1;
+    private IntFunction<Task> loader;
+    // set by the first change after the list was last published
+    private volatile boolean isUnpublished;
+    private volatile View published;
+
+    /**
+     * A run of tasks of the list as they were when the snapshot was taken.
+     * A snapshot never changes, except that each task's completion status is read as it is now.
+     */
+    static final class Snapshot implements Iterable<Task> {
+
+        private final Task[] tasks;
+        private final int listSize;
+        private final boolean isLoaded;
+
+        private Snapshot(Task[] tasks, int listSize, boolean isLoaded) {
+            this.tasks = tasks;
+            this.listSize = listSize;
+            this.isLoaded = isLoaded;
+        }
+
+        /**
+         * Returns the number of tasks in the snapshot.
+         */
+        int size() {
+            return tasks.length;
+        }
+
+        /**
+         * Returns the number of tasks the whole list had when the snapshot was taken.
+         */
+        int listSize() {
+            return listSize;
+        }
+
+        /**
+         * Returns whether any of the tasks had to be created by the loader as the snapshot was taken.
+         */
+        boolean isLoaded() {
+            return isLoaded;
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            return Arrays.asList(tasks).iterator();
+        }
+    }
+
+    /**
+     * The whole list as it was when it was last published. A view never changes, so it can be read
+     * from any thread without locking.
+     */
+    static final class View {
+
+        private final Task[][] slots;
+        private final boolean[][] isLive;
+        // the number of live slots before each chunk, with the total at the end
+        private final int[] liveCountsBefore;
+        private final IntFunction<Task> loader;
+
+        private View(Task[][] slots, boolean[][] isLive, int[] liveCountsBefore, IntFunction<Task> loader) {
+            this.slots = slots;
+            this.isLive = isLive;
+            this.liveCountsBefore = liveCountsBefore;
+            this.loader = loader;
+        }
+
+        /**
+         * Returns the number of tasks in the view.
+         */
+        int size() {
+            return liveCountsBefore[liveCountsBefore.length - 1];
+        }
+
+        /**
+         * Takes a snapshot of a run of the view. Tasks that were not yet materialized when the view was
+         * published are created by the list's loader, but not kept, and the snapshot says so, since
+         * the loader reads storage that may have changed since.
+         *
+         * @param fromIndex The position of the first task in the run.
+         * @param count The greatest number of tasks in the run; fewer are taken at the end of the list.
+         * @return The snapshot, which is empty if the run starts past the end of the list.
+         */
+        Snapshot snapshot(int fromIndex, int count) {
+            int size = size();
+            int toIndex = (int) Math.min((long) fromIndex + count, size);
+            if (fromIndex >= toIndex) {
+                return new Snapshot(new Task[0], size, false);
+            }
+
+            int chunk = chunkHolding(fromIndex);
+            int position = liveCountsBefore[chunk];
+            int slot = chunk * PAGE_SIZE;
+            Task[] tasks = new Task[toIndex - fromIndex];
+            boolean isLoaded = false;
+            for (int i = 0; i < tasks.length; slot++) {
+                if (!isLive[slot / PAGE_SIZE][slot % PAGE_SIZE]) {
+                    continue;
+                }
+                if (position >= fromIndex) {
+                    Task task = slots[slot / PAGE_SIZE][slot % PAGE_SIZE];
+                    if (task == null) {
+                        task = loader.apply(position + 1);
+                        isLoaded = true;
+                    }
+                    tasks[i++] = task;
+                }
+                position++;
+            }
+            return new Snapshot(tasks, size, isLoaded);
+        }
+
+        /**
+         * Returns the last chunk that starts at or before the given position.
+         */
+        private int chunkHolding(int index) {
+            int low = 0;
+            int high = slots.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (liveCountsBefore[middle] <= index) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Publishes every list changed since it was last published.
+     * Called by the command lock just before it is released.
+     */
+    static void publishChanged() {
+        synchronized (unpublished) {
+            for (TaskList list : unpublished) {
+                list.publish();
+                list.isUnpublished = false;
+            }
+            unpublished.clear();
+        }
+    }
+
+    /**
+     * Returns the view last published, or null if the list has not been published yet.
+     */
+    View published() {
+        return published;
+    }
+
+    /**
+     * Returns whether the list has changed since it was last published.
+     */
+    boolean isUnpublished() {
+        return isUnpublished;
+    }
+
+    /**
+     * Publishes a view of the list as it is now, which readers may then use without locking.
+     */
+    void publish() {
+        int chunkCount = Math.max(chunkOf(slotCount - 1) + 1, 1);
+        int[] liveCountsBefore = new int[chunkCount + 1];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            liveCountsBefore[chunk + 1] = liveCountsBefore[chunk] + chunkLiveCounts[chunk];
+            isChunkPublished[chunk] = true;
+        }
+        published = new View(Arrays.copyOf(slots, chunkCount), Arrays.copyOf(isLive, chunkCount),
+                liveCountsBefore, loader);
+    }
+
+    /**
+     * Replaces the contents of the list with {@code size} unmaterialized tasks.
+     *
+     * @param size The number of tasks available from the loader.
+     * @param loader Creates the task at a given 1-based position.
+     */
+    void resetLazily(int size, IntFunction<Task> loader) {
+        clear();
+        ensureCapacity(size);
+        for (int slot = 0; slot < size; slot++) {
+            isLive[chunkOf(slot)][slot % PAGE_SIZE] = true;
+            chunkLiveCounts[chunkOf(slot)]++;
+        }
+        slotCount = size;
+        liveCount = size;
+        rebuildLiveCounts();
+        this.loader = loader;
+    }
+
+    @Override
+    public Task get(int index) {
+        int slot = slotAt(index);
+        if (taskAt(slot) == null) {
+            materializePage(slot, index);
+        }
+        return taskAt(slot);
+    }
+
+    @Override
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Adds a task to the list. Only appending is supported.
+     *
+     * @param index The position to add at, which must be the end of the list.
+     * @param task The task to add.
+     */
+    @Override
+    public void add(int index, Task task) {
+        if (index != liveCount) {
+            throw new UnsupportedOperationException("Tasks can only be appended");
+        }
+        if (slotCount == capacity()) {
+            ensureCapacity(slotCount * 2);
+        }
+
+        int slot = slotCount++;
+        setSlot(slot, task, true);
+        chunkLiveCounts[chunkOf(slot)]++;
+        addToLiveCount(slot, 1);
+        liveCount++;
+        register(task, slot);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task task = get(index);
+        int slot = idToSlot.remove(task.id);
+        searchIndex.remove(task);
+        deadlineIndex.remove(task);
+        eventIndex.remove(task);
+        setSlot(slot, null, false);
+        chunkLiveCounts[chunkOf(slot)]--;
+        addToLiveCount(slot, -1);
+        liveCount--;
+        modCount++;
+
+        if (slotCount - liveCount > Math.max(liveCount, INITIAL_CAPACITY)) {
+            compact();
+        }
+        return task;
+    }
+
+    /**
+     * Returns the position of the given task, found through its id rather than a scan.
+     *
+     * @param o The task to find.
+     * @return The 0-based position of the task, or -1 if it is not in the list.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Task task)) {
+            return -1;
+        }
+        Integer slot = idToSlot.get(task.id);
+        if (slot == null || taskAt(slot) != task) {
+            return -1;
+        }
+        return liveCountBefore(slot);
+    }
+
+    /**
+     * Returns the position of the task with the given id.
+     *
+     * @param id The stable id of the task.
+     * @return The 0-based position of the task, or -1 if it is not in the list.
+     */
+    int indexOfId(int id) {
+        Integer slot = idToSlot.get(id);
+        return slot == null ? -1 : liveCountBefore(slot);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        slots = new Task[1][PAGE_SIZE];
+        isLive = new boolean[1][PAGE_SIZE];
+        chunkLiveCounts = new int[1];
+        isChunkPublished = new boolean[1];
+        liveCounts = new int[PAGE_SIZE + 1];
+        idToSlot.clear();
+        searchIndex.clear();
+        deadlineIndex.clear();
+        eventIndex.clear();
+        slotCount = 0;
+        liveCount = 0;
+        loader = null;
+        modCount++;
+        markUnpublished();
+    }
+
+    /**
+     * Takes a snapshot of the whole list, materializing every task first.
+     * The snapshot may be read from any thread once the call returns.
+     *
+     * @return The snapshot.
+     */
+    Snapshot snapshot() {
+        return snapshot(0, liveCount);
+    }
+
+    /**
+     * Takes a snapshot of a run of the list, materializing only the tasks in it.
+     * The snapshot may be read from any thread once the call returns. Only the run is copied, so
+     * this takes time in proportion to its length, plus loading any of its pages not yet loaded.
+     *
+     * @param fromIndex The position of the first task in the run.
+     * @param count The greatest number of tasks in the run; fewer are taken at the end of the list.
+     * @return The snapshot, which is empty if the run starts past the end of the list.
+     */
+    Snapshot snapshot(int fromIndex, int count) {
+        int toIndex = (int) Math.min((long) fromIndex + count, liveCount);
+        if (fromIndex >= toIndex) {
+            return new Snapshot(new Task[0], liveCount, false);
+        }
+
+        Task[] tasks = new Task[toIndex - fromIndex];
+        int slot = slotAt(fromIndex);
+        for (int i = 0; i < tasks.length; i++) {
+            slot = nextLiveSlot(slot);
+            if (taskAt(slot) == null) {
+                materializePage(slot, fromIndex + i);
+            }
+            tasks[i] = taskAt(slot++);
+        }
+        return new Snapshot(tasks, liveCount, false);
+    }
+
+    /**
+     * Finds the tasks whose descriptions contain every term of the query.
+     * Any tasks not yet loaded are materialized first so that they can be indexed.
+     *
+     * @param query The search terms; a term ending in {@code *} matches words starting with it.
+     * @return The 0-based positions of the matching tasks, in ascending order.
+     */
+    int[] search(String query) {
+        materializeAll();
+        return toPositions(searchIndex.search(query));
+    }
+
+    /**
+     * Finds the deadlines that are not done and are due within a date range.
+     *
+     * @param from The first date of the range, inclusive.
+     * @param to The last date of the range, inclusive.
+     * @return The 0-based positions of the matching tasks, in ascending order.
+     */
+    int[] findDueBetween(LocalDate from, LocalDate to) {
+        materializeAll();
+        return toPositions(deadlineIndex.dueBetween(from, to));
+    }
+
+    /**
+     * Finds the deadlines that are not done and were due before a date.
+     *
+     * @param date The date, exclusive.
+     * @return The 0-based positions of the matching tasks, in ascending order.
+     */
+    int[] findDueBefore(LocalDate date) {
+        materializeAll();
+        return toPositions(deadlineIndex.dueBefore(date));
+    }
+
+    /**
+     * Finds the events taking place on a date.
+     *
+     * @param date The date.
+     * @return The 0-based positions of the matching events, in ascending order.
+     */
+    int[] findEventsOn(LocalDate date) {
+        materializeAll();
+        return toPositions(eventIndex.overlapping(date));
+    }
+
+    /**
+     * Finds every pair of events whose times overlap.
+     *
+     * @return Pairs of 0-based positions, each in ascending order, sorted by their first position.
+     */
+    List<int[]> findClashingEvents() {
+        materializeAll();
+        List<int[]> clashes = eventIndex.clashingPairs();
+        for (int[] clash : clashes) {
+            clash[0] = indexOfId(clash[0]);
+            clash[1] = indexOfId(clash[1]);
+            Arrays.sort(clash);
+        }
+        clashes.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        return clashes;
+    }
+
+    /**
+     * Sets whether a task in the list is done, keeping the indexes in step.
+     *
+     * @param task The task to update.
+     * @param isDone The new completion status.
+     */
+    void setDone(Task task, boolean isDone) {
+        deadlineIndex.remove(task);
+        task.isDone = isDone;
+        deadlineIndex.add(task);
+    }
+
+    private int[] toPositions(int[] ids) {
+        int[] positions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            positions[i] = indexOfId(ids[i]);
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Creates every task not yet loaded, after which the loader is no longer used.
+     */
+    void materializeAll() {
+        if (loader == null) {
+            return;
+        }
+        for (Task ignored : this) {
+            // iterating materializes every page
+        }
+        loader = null;
+    }
+
+
+    /**
+     * Iterates over the tasks in order, walking the slots directly instead of looking up each position.
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private int slot = nextLiveSlot(0);
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return slot < slotCount;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (taskAt(slot) == null) {
+                    materializePage(slot, index);
+                }
+                Task task = taskAt(slot);
+                slot = nextLiveSlot(slot + 1);
+                index++;
+                return task;
+            }
+        };
+    }
+
+    private int nextLiveSlot(int from) {
+        int slot = from;
+        while (slot < slotCount && !isLiveSlot(slot)) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private void register(Task task, int slot) {
+        if (task.id == 0) {
+            task.id = nextId++;
+        } else {
+            nextId = Math.max(nextId, task.id + 1);
+        }
+        idToSlot.put(task.id, slot);
+        searchIndex.add(task);
+        deadlineIndex.add(task);
+        eventIndex.add(task);
+    }
+
+    /**
+     * Creates every unmaterialized live task on the page holding the given slot.
+     *
+     * @param slot A slot on the page.
+     * @param index The 0-based position of the task in that slot.
+     */
+    private void materializePage(int slot, int index) {
+        int start = slot - slot % PAGE_SIZE;
+        int end = Math.min(start + PAGE_SIZE, slotCount);
+        int position = index - liveCountBetween(start, slot);
+        for (int i = start; i < end; i++) {
+            if (!isLiveSlot(i)) {
+                continue;
+            }
+            if (taskAt(i) == null) {
+                Task task = loader.apply(position + 1);
+                setSlot(i, task, true);
+                register(task, i);
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Squeezes out dead slots into fresh chunks, renumbering the remaining slots in order.
+     */
+    private void compact() {
+        int chunkCount = slots.length;
+        Task[][] oldSlots = slots;
+        boolean[][] oldIsLive = isLive;
+        int oldSlotCount = slotCount;
+        slots = new Task[chunkCount][];
+        isLive = new boolean[chunkCount][];
+        chunkLiveCounts = new int[chunkCount];
+        isChunkPublished = new boolean[chunkCount];
+        allocateChunks(0);
+
+        int live = 0;
+        idToSlot.clear();
+        for (int slot = 0; slot < oldSlotCount; slot++) {
+            if (!oldIsLive[chunkOf(slot)][slot % PAGE_SIZE]) {
+                continue;
+            }
+            Task task = oldSlots[chunkOf(slot)][slot % PAGE_SIZE];
+            slots[chunkOf(live)][live % PAGE_SIZE] = task;
+            isLive[chunkOf(live)][live % PAGE_SIZE] = true;
+            chunkLiveCounts[chunkOf(live)]++;
+            if (task != null) {
+                idToSlot.put(task.id, live);
+            }
+            live++;
+        }
+        slotCount = live;
+        rebuildLiveCounts();
+        markUnpublished();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= capacity()) {
+            return;
+        }
+        int chunkCount = chunkOf(capacity - 1) + 1;
+        int oldChunkCount = slots.length;
+        slots = Arrays.copyOf(slots, chunkCount);
+        isLive = Arrays.copyOf(isLive, chunkCount);
+        chunkLiveCounts = Arrays.copyOf(chunkLiveCounts, chunkCount);
+        isChunkPublished = Arrays.copyOf(isChunkPublished, chunkCount);
+        allocateChunks(oldChunkCount);
+        liveCounts = new int[capacity() + 1];
+        rebuildLiveCounts();
+    }
+
+    private void allocateChunks(int fromChunk) {
+        for (int chunk = fromChunk; chunk < slots.length; chunk++) {
+            slots[chunk] = new Task[PAGE_SIZE];
+            isLive[chunk] = new boolean[PAGE_SIZE];
+        }
+    }
+
+    private int capacity() {
+        return slots.length * PAGE_SIZE;
+    }
+
+    private static int chunkOf(int slot) {
+        return slot / PAGE_SIZE;
+    }
+
+    private Task taskAt(int slot) {
+        return slots[chunkOf(slot)][slot % PAGE_SIZE];
+    }
+
+    private boolean isLiveSlot(int slot) {
+        return isLive[chunkOf(slot)][slot % PAGE_SIZE];
+    }
+
+    /**
+     * Fills a slot, first copying its chunk if a published view refers to it.
+     */
+    private void setSlot(int slot, Task task, boolean isSlotLive) {
+        int chunk = chunkOf(slot);
+        if (isChunkPublished[chunk]) {
+            slots[chunk] = slots[chunk].clone();
+            isLive[chunk] = isLive[chunk].clone();
+            isChunkPublished[chunk] = false;
+        }
+        slots[chunk][slot % PAGE_SIZE] = task;
+        isLive[chunk][slot % PAGE_SIZE] = isSlotLive;
+        markUnpublished();
+    }
+
+    private void markUnpublished() {
+        if (isUnpublished) {
+            return;
+        }
+        synchronized (unpublished) {
+            unpublished.add(this);
+        }
+        isUnpublished = true;
+    }
+
+    private void rebuildLiveCounts() {
+        Arrays.fill(liveCounts, 0);
+        for (int i = 1; i < liveCounts.length; i++) {
+            if (i - 1 < slotCount && isLiveSlot(i - 1)) {
+                liveCounts[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent < liveCounts.length) {
+                liveCounts[parent] += liveCounts[i];
+            }
+        }
+    }
+
+    private void addToLiveCount(int slot, int delta) {
+        for (int i = slot + 1; i < liveCounts.length; i += i & -i) {
+            liveCounts[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of live slots before the given slot.
+     */
+    private int liveCountBefore(int slot) {
+        int count = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            count += liveCounts[i];
+        }
+        return count;
+    }
+
+    private int liveCountBetween(int fromSlot, int toSlot) {
+        return liveCountBefore(toSlot) - liveCountBefore(fromSlot);
+    }
+
+    /**
+     * Finds the slot holding the task at the given position by descending the Fenwick tree.
+     */
+    private int slotAt(int index) {
+        if (index < 0 || index >= liveCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + liveCount);
+        }
+
+        int slot = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(liveCounts.length - 1); step > 0; step >>= 1) {
+            int next = slot + step;
+            if (next < liveCounts.length && liveCounts[next] < remaining) {
+                slot = next;
+                remaining -= liveCounts[next];
+            }
+        }
+        return slot;
+    }
+}
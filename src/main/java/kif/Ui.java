@@ -2,37 +2,41 @@ package kif;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.function.Consumer;
 
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
 
 /**
  * A GUI for Kif using FXML.
+ * The text of Kif's replies comes from {@link Messages}, which the headless modes use without loading JavaFX.
  */
 public class Ui extends Application {
 
-    private static final String SEPARATOR = "____________________________________________________________";
-
     @Override
     public void start(Stage stage) {
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(Ui.class.getResource("/view/MainWindow.fxml"));
             AnchorPane ap = fxmlLoader.load();
             Scene scene = new Scene(ap);
+            Kif.defaultSession.exitHook = Platform::exit;
             stage.setTitle("Kif");
             stage.setScene(scene);
             stage.show();
@@ -41,80 +45,143 @@ public class Ui extends Application {
         }
     }
 
-    /**
-     * Formats messages with a separator.
-     *
-     * @param lines The lines to format.
-     * @return The formatted message.
-     */
-    public static String formatMessage(String... lines) {
-        return SEPARATOR + System.lineSeparator() + String.join(System.lineSeparator(), lines) + System.lineSeparator() + SEPARATOR;
+    @Override
+    public void stop() {
+        Kif.closeSession(Kif.defaultSession).join();
     }
 
     /**
-     * Returns the introduction message for Kif.
+     * Represents a single message in the chat transcript.
+     *
+     * @param text The message text.
+     * @param isFromUser Whether the user sent the message, rather than Kif.
+     * @param isPending Whether the message stands in for a reply that Kif is still working on.
      */
-    public static String getIntroductionMessage() {
-        return formatMessage("Hello! I'm Kif", "What can I do for you?");
-    }
+    public record Message(String text, boolean isFromUser, boolean isPending) {
 
-    /**
-     * Closes the GUI application.
-     */
-    public static void closeGui() {
-        Platform.exit();
-    }
+        private static final String PENDING_TEXT = "Kif is typing...";
 
-    public static String getUnknownCommandMessage() {
-        return formatMessage("I'm sorry, but I don't understand that command. Please try again!");
-    }
+        public static Message fromUser(String text) {
+            return new Message(text, true, false);
+        }
 
-    /**
-     * Returns the goodbye message.
-     */
-    public static String getGoodbyeMessage() {
-        return formatMessage("Kif: Bye. Hope to see you again soon!");
+        public static Message fromKif(String text) {
+            return new Message(text, false, false);
+        }
+
+        public static Message pending() {
+            return new Message(PENDING_TEXT, false, true);
+        }
     }
 
     /**
-     * Returns a message indicating that there is no command to undo.
+     * A transcript row that shows a message in a dialog box.
+     * The list view reuses its cells as the user scrolls, so each cell keeps one dialog box
+     * and only swaps the text and image it shows.
      */
-    public static String getCannotUndoMessage() {
-        return formatMessage("Kif: No command to undo.");
+    public static class DialogCell extends ListCell<Message> {
+
+        private static final double PENDING_OPACITY = 0.5;
+
+        // leaves room for the vertical scroll bar so that the dialog never scrolls sideways
+        private static final double SCROLL_BAR_ALLOWANCE = 20.0;
+
+        private final DialogBox dialogBox = new DialogBox("", null);
+        private final Image userImage;
+        private final Image kifImage;
+        private final Consumer<Message> onShown;
+
+        /**
+         * Creates a cell for the given transcript.
+         *
+         * @param listView The list view the cell belongs to.
+         * @param userImage The picture shown beside the user's messages.
+         * @param kifImage The picture shown beside Kif's messages.
+         * @param onShown Told of each message the cell is given, which happens as it scrolls into view.
+         */
+        public DialogCell(ListView<Message> listView, Image userImage, Image kifImage, Consumer<Message> onShown) {
+            this.userImage = userImage;
+            this.kifImage = kifImage;
+            this.onShown = onShown;
+            setPrefWidth(0);
+            setStyle("-fx-background-color: transparent;");
+            dialogBox.prefWidthProperty().bind(listView.widthProperty().subtract(SCROLL_BAR_ALLOWANCE));
+        }
+
+        @Override
+        protected void updateItem(Message message, boolean isEmpty) {
+            super.updateItem(message, isEmpty);
+            if (isEmpty || message == null) {
+                setGraphic(null);
+                return;
+            }
+
+            dialogBox.show(message.text(), message.isFromUser() ? userImage : kifImage, !message.isFromUser());
+            dialogBox.setOpacity(message.isPending() ? PENDING_OPACITY : 1.0);
+            setGraphic(dialogBox);
+            onShown.accept(message);
+        }
     }
 
     /**
      * Represents a dialog box consisting of an ImageView to represent the speaker's face and a label containing text from the speaker.
+     * The box is laid out in code rather than loaded from FXML,
+     * so showing a message costs no XML parsing or reflection.
      */
     public static class DialogBox extends HBox {
 
-        @FXML
-        private Label dialog;
-        @FXML
-        private ImageView displayPicture;
+        private static final double PICTURE_SIZE = 99.0;
+        private static final double PREF_WIDTH = 400.0;
+        private static final Insets PADDING = new Insets(15.0, 5.0, 15.0, 5.0);
+
+        private final Label dialog = new Label();
+        private final ImageView displayPicture = new ImageView();
+
+        private boolean isFlipped;
 
         private DialogBox(String text, Image img) {
-            try {
-                FXMLLoader fxmlLoader = new FXMLLoader(MainWindow.class.getResource("/view/DialogBox.fxml"));
-                fxmlLoader.setController(this);
-                fxmlLoader.setRoot(this);
-                fxmlLoader.load();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            dialog.setWrapText(true);
+            dialog.setMinHeight(Region.USE_PREF_SIZE);
+            displayPicture.setFitHeight(PICTURE_SIZE);
+            displayPicture.setFitWidth(PICTURE_SIZE);
+            displayPicture.setPickOnBounds(true);
+            displayPicture.setPreserveRatio(true);
+
+            setAlignment(Pos.TOP_RIGHT);
+            setMaxHeight(Double.MAX_VALUE);
+            setMaxWidth(Double.MAX_VALUE);
+            setPrefWidth(PREF_WIDTH);
+            setPadding(PADDING);
+            getChildren().addAll(dialog, displayPicture);
 
             dialog.setText(text);
             displayPicture.setImage(img);
         }
 
         /**
-         * Flips the dialog box such that the ImageView is on the left and text on the right.
+         * Flips the dialog box such that the ImageView and text swap sides.
          */
         private void flip() {
             ObservableList<Node> children = FXCollections.observableArrayList(this.getChildren());
             Collections.reverse(children);
             getChildren().setAll(children);
-            setAlignment(Pos.TOP_LEFT);
+            isFlipped = !isFlipped;
+            setAlignment(isFlipped ? Pos.TOP_LEFT : Pos.TOP_RIGHT);
+        }
+
+        /**
+         * Reuses the dialog box for another message.
+         *
+         * @param text The message text.
+         * @param img The speaker's picture.
+         * @param isKif Whether Kif is the speaker, which puts the picture on the left.
+         */
+        private void show(String text, Image img, boolean isKif) {
+            dialog.setText(text);
+            displayPicture.setImage(img);
+            if (isFlipped != isKif) {
+                flip();
+            }
         }
 
         /**
@@ -0,0 +1,87 @@
+package kif;
+
+import java.nio.file.Path;
+
+/**
+ * An independent task list together with the files that store it.
+ *
+ * <p>{@link Task} and {@link Storage} work on the workspace bound to the calling thread, which is
+ * the default workspace unless a command for another one is running. The default workspace keeps
+ * its files in the data directory and is always loaded; named workspaces keep theirs in a directory
+ * of their own and are loaded and evicted by the {@link WorkspaceRegistry}. The storage fields are
+ * only touched by {@code Storage}, under the command lock.
+ */
+final class Workspace {
+
+    /** The name of the workspace used by sessions that have not chosen another. */
+    static final String DEFAULT_NAME = "default";
+
+    private static final Workspace defaultWorkspace =
+            new Workspace(DEFAULT_NAME, Path.of(System.getProperty("kif.data", "")));
+    private static final ThreadLocal<Workspace> boundWorkspace = new ThreadLocal<>();
+
+    final String name;
+    final TaskList tasks = new TaskList();
+
+    // the state of this workspace's task files, kept by Storage
+    Path dataDirectory;
+    Journal journal;
+    BinaryStorage binaryStorage;
+    GroupCommitWriter taskWriter;
+    boolean isDeferringWrites;
+    boolean hasDeferredWrites;
+
+    // the number of commands using this workspace, which keep the registry from evicting it
+    int pinCount;
+
+    /**
+     * Creates an empty workspace whose tasks have not been loaded yet.
+     *
+     * @param name The name of the workspace.
+     * @param dataDirectory The directory holding its task files; the empty path means the working directory.
+     */
+    Workspace(String name, Path dataDirectory) {
+        this.name = name;
+        this.dataDirectory = dataDirectory;
+    }
+
+    /**
+     * Returns the workspace that sessions use until they choose another.
+     */
+    static Workspace getDefault() {
+        return defaultWorkspace;
+    }
+
+    /**
+     * Returns the workspace bound to the calling thread, or the default workspace if none is bound.
+     */
+    static Workspace current() {
+        Workspace workspace = boundWorkspace.get();
+        return workspace == null ? defaultWorkspace : workspace;
+    }
+
+    /**
+     * Binds a workspace to the calling thread until {@link #restore(Workspace)} is called.
+     *
+     * @param workspace The workspace for the calling thread to work on.
+     * @return The workspace bound before, to be passed to {@code restore}.
+     */
+    static Workspace bind(Workspace workspace) {
+        Workspace previous = boundWorkspace.get();
+        boundWorkspace.set(workspace);
+        return previous;
+    }
+
+    /**
+     * Rebinds the workspace that {@link #bind(Workspace)} replaced.
+     *
+     * @param previous The workspace returned by {@code bind}.
+     */
+    static void restore(Workspace previous) {
+        if (previous == null) {
+            boundWorkspace.remove();
+        } else {
+            boundWorkspace.set(previous);
+        }
+    }
+}
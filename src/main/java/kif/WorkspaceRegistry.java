@@ -0,0 +1,160 @@
+package kif;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the named workspaces that are in memory, loading each from its directory the first time
+ * it is used and evicting the least recently used once too many are loaded.
+ *
+ * <p>Each workspace keeps its files in a directory named after it under the root directory, so
+ * any number of them can exist on disk while only the busiest few hold their tasks in memory.
+ * Evicting a workspace saves its pending changes and closes its files; it is loaded again on its
+ * next use. A workspace that a command has pinned is never evicted, even by a command on another
+ * thread, and the registry holds more than its capacity while every loaded workspace is pinned.
+ */
+class WorkspaceRegistry {
+
+    /** The most workspaces kept in memory at once, unless another limit is given. */
+    static final int DEFAULT_CAPACITY = Integer.getInteger("kif.workspaces.loaded", 64);
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Path rootDirectory;
+    private final int capacity;
+    private final Map<String, Workspace> loadedWorkspaces;
+
+    /**
+     * Creates a registry with no workspaces loaded.
+     *
+     * @param rootDirectory The directory holding a directory for each workspace.
+     * @param capacity The most workspaces to keep in memory at once.
+     */
+    WorkspaceRegistry(Path rootDirectory, int capacity) {
+        assert capacity > 0 : "A registry should be able to hold at least one workspace";
+
+        this.rootDirectory = rootDirectory;
+        this.capacity = capacity;
+        // in access order, so that the eldest entry is the least recently used workspace
+        this.loadedWorkspaces = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Checks whether a name can be used for a workspace. Names are used as directory names,
+     * so only letters, digits, dashes and underscores are allowed.
+     *
+     * @param name The name to check.
+     * @return Whether the name is valid.
+     */
+    static boolean isValidName(String name) {
+        return NAME_PATTERN.matcher(name).matches();
+    }
+
+    /**
+     * Returns the named workspace, loading its tasks if it is not in memory,
+     * and evicting the least recently used workspace that is not pinned if too many are loaded.
+     *
+     * @param name The name of the workspace, which must be valid.
+     * @return The workspace.
+     * @throws IOException If the workspace's directory cannot be created, or an evicted workspace cannot be saved.
+     */
+    synchronized Workspace get(String name) throws IOException {
+        assert isValidName(name) : "Workspace names should be checked before use";
+
+        Workspace workspace = loadedWorkspaces.get(name);
+        if (workspace != null) {
+            return workspace;
+        }
+
+        if (loadedWorkspaces.size() >= capacity) {
+            evictLeastRecentlyUsed();
+        }
+
+        Path directory = rootDirectory.resolve(name);
+        Files.createDirectories(directory);
+        workspace = new Workspace(name, directory);
+        Workspace previous = Workspace.bind(workspace);
+        try {
+            Storage.initialiseUserTasks();
+        } finally {
+            Workspace.restore(previous);
+        }
+        loadedWorkspaces.put(name, workspace);
+        return workspace;
+    }
+
+    /**
+     * Keeps a workspace in memory until it is unpinned, such as while a command runs against it.
+     * Pins are counted, so each must be undone by its own call to {@link #unpin(Workspace)}.
+     *
+     * @param workspace A workspace returned by {@link #get(String)}.
+     */
+    synchronized void pin(Workspace workspace) {
+        workspace.pinCount++;
+    }
+
+    /**
+     * Undoes one {@link #pin(Workspace)}, letting the workspace be evicted once no pins are left.
+     *
+     * @param workspace The pinned workspace.
+     */
+    synchronized void unpin(Workspace workspace) {
+        assert workspace.pinCount > 0 : "A workspace should be pinned before it is unpinned";
+        workspace.pinCount--;
+    }
+
+    /**
+     * Returns the workspaces in memory, least recently used first.
+     */
+    synchronized List<Workspace> getLoaded() {
+        return new ArrayList<>(loadedWorkspaces.values());
+    }
+
+    /**
+     * Returns the number of workspaces in memory.
+     */
+    synchronized int getLoadedCount() {
+        return loadedWorkspaces.size();
+    }
+
+    /**
+     * Checks whether the named workspace is in memory, without counting as a use of it.
+     */
+    synchronized boolean isLoaded(String name) {
+        return loadedWorkspaces.containsKey(name);
+    }
+
+    private void evictLeastRecentlyUsed() throws IOException {
+        Iterator<Workspace> iterator = loadedWorkspaces.values().iterator();
+        while (iterator.hasNext()) {
+            Workspace workspace = iterator.next();
+            if (workspace.pinCount == 0) {
+                iterator.remove();
+                Storage.closeWorkspace(workspace);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Saves and closes every workspace in memory, so that no change is lost on exit.
+     */
+    synchronized void closeAll() {
+        List<Workspace> workspaces = new ArrayList<>(loadedWorkspaces.values());
+        loadedWorkspaces.clear();
+        for (Workspace workspace : workspaces) {
+            try {
+                Storage.closeWorkspace(workspace);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error saving workspace " + workspace.name + ": " + e.getMessage());
+            }
+        }
+    }
+}
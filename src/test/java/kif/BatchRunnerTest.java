@@ -0,0 +1,116 @@
+package kif;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path taskFile;
+    private Path previousDataDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Storage.setBackend(Storage.Backend.TEXT);
+        previousDataDirectory = Workspace.getDefault().dataDirectory;
+        Storage.setDataDirectory(tempDir);
+        taskFile = tempDir.resolve("tasks.txt");
+        Task.clearTasks();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Storage.setBackend(Storage.Backend.TEXT);
+        Storage.setLazyLoading(false);
+        Storage.setDataDirectory(previousDataDirectory);
+    }
+
+    @Test
+    void run_ShouldApplyCommandsUntilByeAndSaveOnce() throws IOException {
+        int linesBefore = Files.exists(taskFile) ? Files.readAllLines(taskFile).size() : 0;
+        String script = String.join(System.lineSeparator(), "todo Batch A", "", "todo Batch B", "bye", "todo Batch C");
+        StringWriter output = new StringWriter();
+
+        int count = new BatchRunner(1).run(new BufferedReader(new StringReader(script)), output, new StringWriter());
+
+        List<String> lines = Files.readAllLines(taskFile);
+        assertEquals(2, count, "Commands after bye should not run.");
+        assertEquals(linesBefore + 2, lines.size(), "Both tasks should be saved.");
+        assertEquals(Checksums.append("false" + Storage.KEYWORD + "Batch B"), lines.get(lines.size() - 1),
+                "Tasks should be saved in order.");
+        assertFalse(output.toString().contains("Batch C"), "Commands after bye should not be answered.");
+    }
+
+    @Test
+    void run_FailedLine_ShouldReportItAndContinue() throws IOException {
+        int linesBefore = Files.exists(taskFile) ? Files.readAllLines(taskFile).size() : 0;
+        String script = String.join(System.lineSeparator(), "todo Batch A", "deadline Batch B /by tomorrow",
+                "", "delete 100000", "todo Batch C");
+        StringWriter errors = new StringWriter();
+        BatchRunner runner = new BatchRunner(0);
+
+        int count = runner.run(new BufferedReader(new StringReader(script)), new StringWriter(), errors);
+
+        List<String> lines = Files.readAllLines(taskFile);
+        assertEquals(4, count, "Every command should run.");
+        assertEquals(2, runner.getFailedLineCount(), "Both bad lines should be counted.");
+        assertTrue(errors.toString().startsWith("Line 2: "), "Failures should be reported by line number.");
+        assertTrue(errors.toString().contains("Line 4: "), "Line numbers should count blank lines.");
+        assertEquals(linesBefore + 2, lines.size(), "The good lines should be saved.");
+        assertEquals(Checksums.append("false" + Storage.KEYWORD + "Batch C"), lines.get(lines.size() - 1),
+                "Lines after a failure should still run.");
+    }
+
+    @Test
+    void deferWrites_ShouldSaveOnlyWhenFlushed() throws IOException {
+        Kif.loadTasks();
+        List<String> linesBefore = Files.exists(taskFile) ? Files.readAllLines(taskFile) : List.of();
+
+        Storage.deferWrites();
+        Storage.writeTask(new Task.ToDo("Deferred"));
+        List<String> linesDeferred = Files.exists(taskFile) ? Files.readAllLines(taskFile) : List.of();
+        Storage.stopDeferringWrites();
+        List<String> linesAfter = Files.readAllLines(taskFile);
+
+        assertEquals(linesBefore, linesDeferred, "Deferred writes should not touch the file.");
+        assertEquals(linesBefore.size() + 1, linesAfter.size(), "Flushing should save the deferred task.");
+        assertEquals(Checksums.append("false" + Storage.KEYWORD + "Deferred"), linesAfter.get(linesAfter.size() - 1),
+                "The deferred task should be saved last.");
+    }
+
+    @Test
+    void run_DeleteWithLazyBinaryStore_ShouldSaveTheRightTasks() throws IOException {
+        try (BinaryStorage store = BinaryStorage.open(tempDir.resolve("tasks.bin"), Storage.Durability.OS_BUFFERED)) {
+            for (int i = 1; i <= 600; i++) {
+                store.append(new Task.ToDo("Task " + i));
+            }
+        }
+        Storage.setBackend(Storage.Backend.BINARY);
+        Storage.setLazyLoading(true);
+        Kif.loadTasks();
+
+        String script = String.join(System.lineSeparator(), "delete 1", "mark 300");
+        new BatchRunner(0).run(new BufferedReader(new StringReader(script)), new StringWriter(), new StringWriter());
+
+        try (BinaryStorage store = BinaryStorage.open(tempDir.resolve("tasks.bin"), Storage.Durability.OS_BUFFERED)) {
+            assertEquals(599, store.size(), "Only the deleted task should be gone.");
+            assertEquals("[T][ ] Task 2", store.readTask(1).toString());
+            assertEquals("[T][X] Task 301", store.readTask(300).toString(), "Later pages should not shift.");
+            assertEquals("[T][ ] Task 600", store.readTask(599).toString());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package kif;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void append_PastIndexCapacity_ShouldKeepEveryTask() throws IOException {
+        Path file = tempDir.resolve("tasks.bin");
+        try (BinaryStorage store = BinaryStorage.open(file, Storage.Durability.PER_COMMAND)) {
+            for (int i = 1; i <= 3000; i++) {
+                store.append(i % 2 == 0 ? new Task.ToDo("Task " + i) : new Task.Event("Task " + i, "2024-02-26", "x"));
+            }
+            store.setDone(2000, true);
+        }
+
+        try (BinaryStorage store = BinaryStorage.open(file, Storage.Durability.PER_COMMAND)) {
+            assertEquals(3000, store.size(), "Growing the index should keep every task.");
+            assertEquals("[E][ ] Task 1 (from: Feb 26 2024 to: x)", store.readTask(1).toString());
+            assertEquals("[T][X] Task 2000", store.readTask(2000).toString(), "Flags should survive a rewrite.");
+            assertEquals("[T][ ] Task 3000", store.readTask(3000).toString());
+        }
+        assertFalse(Files.exists(Path.of(file + ".new")), "The rewritten copy should replace the file.");
+    }
+
+    @Test
+    void delete_ManyTasks_ShouldReclaimTheirSpace() throws IOException {
+        Path file = tempDir.resolve("tasks.bin");
+        String description = "a task with a long description ".repeat(8);
+        try (BinaryStorage store = BinaryStorage.open(file, Storage.Durability.OS_BUFFERED)) {
+            for (int i = 1; i <= 1000; i++) {
+                store.append(new Task.ToDo(description + i));
+            }
+        }
+        long fullSize = Files.size(file);
+
+        try (BinaryStorage store = BinaryStorage.open(file, Storage.Durability.OS_BUFFERED)) {
+            for (int i = 1; i <= 900; i++) {
+                store.delete(1);
+            }
+            assertEquals(100, store.size());
+            assertEquals("[T][ ] " + description + 901, store.readTask(1).toString(), "Later tasks should move up.");
+        }
+
+        assertTrue(Files.size(file) < fullSize, "Deleted records should be reclaimed.");
+        try (BinaryStorage store = BinaryStorage.open(file, Storage.Durability.OS_BUFFERED)) {
+            assertEquals(100, store.size());
+            assertEquals("[T][ ] " + description + 1000, store.readTask(100).toString());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package kif;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CliTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path previousDataDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        previousDataDirectory = Workspace.getDefault().dataDirectory;
+        Storage.setDataDirectory(tempDir);
+        Task.clearTasks();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Storage.setDataDirectory(previousDataDirectory);
+    }
+
+    @Test
+    void runInteractively_ShouldReplyUntilBye() throws IOException {
+        StringWriter output = new StringWriter();
+
+        Cli.runInteractively(new BufferedReader(new StringReader("todo read\n\nlist\nbye\ntodo ignored\n")), output);
+
+        String transcript = output.toString();
+        assertTrue(transcript.startsWith(Messages.getIntroductionMessage()), "The introduction should come first.");
+        assertTrue(transcript.contains("1. [T][ ] read"), "Commands should be run in order.");
+        assertTrue(transcript.endsWith(Messages.getGoodbyeMessage() + System.lineSeparator()),
+                "Nothing should run after bye.");
+        assertEquals(1, Task.getTotalTasks(), "Commands after bye should be ignored.");
+    }
+
+    @Test
+    void runInteractively_FailedCommand_ShouldKeepReplying() throws IOException {
+        StringWriter output = new StringWriter();
+
+        Cli.runInteractively(new BufferedReader(new StringReader("todo read\nmark 5\nmark\ntodo write\nbye\n")), output);
+
+        String transcript = output.toString();
+        assertTrue(transcript.contains(Messages.getCommandFailedMessage()), "A bad task number should be reported.");
+        assertTrue(transcript.endsWith(Messages.getGoodbyeMessage() + System.lineSeparator()),
+                "Commands after a failed one should still run.");
+        assertEquals(2, Task.getTotalTasks(), "The command after the failed one should run.");
+    }
+}
@@ -0,0 +1,237 @@
+package kif;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void append_ShouldWriteImmediatelyPerCommand() throws IOException {
+        Path file = tempDir.resolve("tasks.txt");
+        try (GroupCommitWriter writer = new GroupCommitWriter(file, Storage.Durability.PER_COMMAND)) {
+            writer.append("first");
+            assertEquals(List.of("first"), Files.readAllLines(file), "Line should be written before append returns.");
+        }
+    }
+
+    @Test
+    void append_ShouldGroupLinesUntilWindowCloses() throws Exception {
+        Path file = tempDir.resolve("tasks.txt");
+        try (GroupCommitWriter writer = new GroupCommitWriter(file, Storage.Durability.OS_BUFFERED)) {
+            writer.append("first");
+            writer.append("second");
+            for (int i = 0; i < 100 && Files.size(file) == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of("first", "second"), Files.readAllLines(file), "Flusher should write the group.");
+        }
+    }
+
+    @Test
+    void close_ShouldWriteEveryLineFromConcurrentAppenders() throws Exception {
+        Path file = tempDir.resolve("tasks.txt");
+        GroupCommitWriter writer = new GroupCommitWriter(file, Storage.Durability.OS_BUFFERED);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int threadNumber = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    try {
+                        writer.append(threadNumber + " " + i);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(4000, lines.size(), "Every appended line should be written.");
+        assertTrue(lines.contains("3 999"), "Lines should be written whole.");
+    }
+
+    @Test
+    void append_Batched_ShouldWriteEachLineBeforeReturning() throws Exception {
+        Path file = tempDir.resolve("tasks.txt");
+        try (GroupCommitWriter writer = new GroupCommitWriter(file, Storage.Durability.BATCHED)) {
+            List<Thread> threads = new ArrayList<>();
+            List<String> missing = Collections.synchronizedList(new ArrayList<>());
+            for (int t = 0; t < 4; t++) {
+                int threadNumber = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            String line = threadNumber + " " + i;
+                            writer.append(line);
+                            if (!Files.readAllLines(file).contains(line)) {
+                                missing.add(line);
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(List.of(), missing, "Every line should be written before its append returns.");
+            assertEquals(200, Files.readAllLines(file).size());
+        }
+    }
+
+    @Test
+    void append_BatchedWriteFails_ShouldReportItAndDropTheLine() throws IOException {
+        Path file = tempDir.resolve("tasks.txt");
+        FailingChannel channel = new FailingChannel(file);
+        try (GroupCommitWriter writer = new GroupCommitWriter(channel, Storage.Durability.BATCHED)) {
+            channel.isFailing = true;
+            assertThrows(IOException.class, () -> writer.append("lost"), "The caller should learn of the failure.");
+            channel.isFailing = false;
+            writer.append("kept");
+        }
+        assertEquals(List.of("kept"), Files.readAllLines(file), "A line reported as failed should not be written.");
+    }
+
+    @Test
+    void flush_OsBufferedWriteFails_ShouldKeepTheLinesForRetry() throws IOException {
+        Path file = tempDir.resolve("tasks.txt");
+        FailingChannel channel = new FailingChannel(file);
+        try (GroupCommitWriter writer = new GroupCommitWriter(channel, Storage.Durability.OS_BUFFERED)) {
+            channel.isFailing = true;
+            writer.append("first");
+            assertThrows(IOException.class, writer::flush, "The failure should be reported.");
+            channel.isFailing = false;
+            writer.flush();
+            writer.append("second");
+        }
+        assertEquals(List.of("first", "second"), Files.readAllLines(file), "Failed lines should be written later.");
+    }
+
+    /**
+     * A file channel whose writes can be made to fail on demand.
+     */
+    private static class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        volatile boolean isFailing;
+
+        FailingChannel(Path path) throws IOException {
+            delegate = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (isFailing) {
+                throw new IOException("Disk full");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
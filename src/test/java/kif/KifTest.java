@@ -1,29 +1,53 @@
 package kif;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class KifTest {
 
+    @TempDir
+    Path tempDir;
+
+    private Session session;
+    private Path previousDataDirectory;
+
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
         // Reset static variables before each test to ensure test independence
-        Kif.previousCommand = null;
-        Kif.previousTask = null;
+        previousDataDirectory = Workspace.getDefault().dataDirectory;
+        Storage.setDataDirectory(tempDir);
+        session = new Session();
         Task.clearTasks(); // Ensure task list is empty before each test
     }
 
+    @AfterEach
+    void tearDown() throws IOException {
+        Storage.setDataDirectory(previousDataDirectory);
+    }
+
     @Test
     void undoPrevCommand_ShouldUndoUnmarkCommand() throws KifException {
         Task task = new Task.ToDo("Sample Task");
-        Task.addTask(task);
-        Kif.previousTask = task;
-        Kif.previousCommand = Kif.UserCommand.UNMARK;
+        Storage.writeTask(task);
+        session.history.record(new History.Entry(Kif.UserCommand.UNMARK, task.id, ""));
         task.isDone = false; // Simulating the task being unmarked
 
-        String result = Kif.undoPrevCommand();
+        String result = Kif.undoPrevCommand(session);
 
         assertTrue(task.isDone, "Undoing unmark should mark the task.");
         assertEquals(Task.markTask(Task.getTaskIndex(task)), result, "Undo should match expected mark message.");
@@ -31,10 +55,10 @@ class KifTest {
 
     @Test
     void undoPrevCommand_ShouldUndoDeadlineCommand() throws KifException {
-        Kif.previousTask = Task.Deadline.create("deadline Submit report /by 2025-03-03");
-        Kif.previousCommand = Kif.UserCommand.DEADLINE;
+        Task task = Task.Deadline.create("deadline Submit report /by 2025-03-03");
+        session.history.record(new History.Entry(Kif.UserCommand.DEADLINE, task.id, Storage.formatTask(task)));
 
-       Kif.undoPrevCommand();
+        Kif.undoPrevCommand(session);
 
         assertEquals(0, Task.getTotalTasks(), "Deleting a task should remove it.");
     }
@@ -42,43 +66,163 @@ class KifTest {
     @Test
     void undoPrevCommand_ShouldUndoDeleteCommand() throws KifException {
         Task task = new Task.ToDo("Deleted Task");
-        Task.addTask(task);
+        Storage.writeTask(task);
         int taskIndex = Task.getTaskIndex(task);
         Task.deleteTask(taskIndex); // Simulating deletion
-        Kif.previousTask = task;
-        Kif.previousCommand = Kif.UserCommand.DELETE;
+        session.history.record(new History.Entry(Kif.UserCommand.DELETE, task.id, Storage.formatTask(task)));
 
-        String result = Kif.undoPrevCommand();
+        String result = Kif.undoPrevCommand(session);
 
         assertEquals(Task.createTaskMsg(task), result, "Undo should match expected restoration message.");
+        assertEquals(task.id, Task.getTask(1).id, "Restored task should keep its id.");
+    }
+
+    @Test
+    void undoPrevCommand_ShouldReturnCannotUndoMessage_OnEmptyHistory() throws KifException {
+        String result = Kif.undoPrevCommand(session);
+
+        assertEquals(Messages.getCannotUndoMessage(), result, "Undoing with no history should return a failure message.");
     }
 
     @Test
-    void undoPrevCommand_ShouldReturnCannotUndoMessage_OnInvalidCommand() throws KifException {
-        Kif.previousCommand = Kif.UserCommand.BYE;
+    void undoPrevCommand_ShouldUndoSeveralCommandsInReverseOrder() throws KifException {
+        Kif.getResponse(session, "todo First");
+        Kif.getResponse(session, "todo Second");
+        Kif.getResponse(session, "mark 1");
+        Kif.getResponse(session, "delete 2");
 
-        String result = Kif.undoPrevCommand();
+        Kif.getResponse(session, "undo");
+        Kif.getResponse(session, "undo");
 
-        assertEquals(Ui.getCannotUndoMessage(), result, "Undoing an invalid command should return a failure message.");
+        assertEquals(2, Task.getTotalTasks(), "Undoing the delete should restore the task.");
+        assertFalse(Task.getTask(1).isDone, "Undoing the mark should unmark the task.");
+
+        Kif.getResponse(session, "undo");
+        Kif.getResponse(session, "undo");
+
+        assertEquals(0, Task.getTotalTasks(), "Undoing both creations should remove both tasks.");
+        assertEquals(Messages.getCannotUndoMessage(), Kif.getResponse(session, "undo"), "History should be exhausted.");
+    }
+
+    @Test
+    void redoNextCommand_ShouldReapplyUndoneCommands() throws KifException {
+        Kif.getResponse(session, "todo First");
+        Kif.getResponse(session, "mark 1");
+        Kif.getResponse(session, "undo");
+        Kif.getResponse(session, "undo");
+
+        Kif.getResponse(session, "redo");
+        Kif.getResponse(session, "redo");
+
+        assertEquals(1, Task.getTotalTasks(), "Redoing the creation should recreate the task.");
+        assertTrue(Task.getTask(1).isDone, "Redoing the mark should mark the recreated task.");
+        assertEquals(Messages.getCannotRedoMessage(), Kif.getResponse(session, "redo"), "Nothing should be left to redo.");
+    }
+
+    @Test
+    void history_ShouldReadBackSpilledEntriesAndForgetOldest() {
+        History history = new History(2, 5);
+        for (int id = 1; id <= 7; id++) {
+            history.record(new History.Entry(Kif.UserCommand.MARK, id, ""));
+        }
+
+        for (int id = 7; id >= 3; id--) {
+            assertEquals(id, history.popUndo().taskId(), "Entries should come back newest first.");
+        }
+        assertNull(history.popUndo(), "Entries past the maximum depth should be forgotten.");
+    }
+
+    @Test
+    void history_Close_ShouldDeleteSpillFile() throws IOException {
+        Set<Path> spillFilesBefore = listSpillFiles();
+        History history = new History(1, 5);
+        for (int id = 1; id <= 3; id++) {
+            history.record(new History.Entry(Kif.UserCommand.MARK, id, ""));
+        }
+        Set<Path> spillFiles = listSpillFiles();
+        spillFiles.removeAll(spillFilesBefore);
+        assertEquals(1, spillFiles.size(), "Older entries should be spilled to a file.");
+
+        history.close();
+
+        assertFalse(Files.exists(spillFiles.iterator().next()), "Closing the history should delete its file.");
+        assertNull(history.popUndo(), "Closing the history should forget its entries.");
+    }
+
+    private static Set<Path> listSpillFiles() throws IOException {
+        Set<Path> paths = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                Path.of(System.getProperty("java.io.tmpdir")), "kif-history*.spill")) {
+            stream.forEach(paths::add);
+        }
+        return paths;
     }
 
     @Test
     void handleCommand_ShouldListTasks() throws KifException {
-        Task.addTask(new Task.ToDo("Task 1"));
-        Task.addTask(new Task.Deadline("deadline Project", "2025-03-03"));
+        Storage.writeTask(new Task.ToDo("Task 1"));
+        Storage.writeTask(new Task.Deadline("deadline Project", "2025-03-03"));
 
-        String result = Kif.handleCommand(Kif.UserCommand.LIST, new String[]{"LIST"}, "list");
+        String result = Kif.handleCommand(session, Kif.UserCommand.LIST, new String[]{"LIST"}, "list");
 
         assertEquals(Task.listUserTask(), result, "Listing tasks should match the expected output.");
     }
 
+    @Test
+    void getResponse_ShouldListTasksPageByPage() {
+        for (int i = 1; i <= 120; i++) {
+            Storage.writeTask(new Task.ToDo("Task " + i));
+        }
+
+        String firstPage = Kif.getResponse(session, "list");
+        assertTrue(firstPage.contains("50. [T][ ] Task 50"), "The first page should hold the default page size.");
+        assertFalse(firstPage.contains("51. "), "Tasks past the first page should not be listed.");
+        assertTrue(firstPage.contains("Page 1 of 3. Type list 2 to see the next page."), "Paging should be noted.");
+        assertEquals(2, session.nextListPage, "The session should remember the next page.");
+
+        String lastPage = Kif.getResponse(session, "list 3");
+        assertTrue(lastPage.contains("101. [T][ ] Task 101") && lastPage.contains("120. [T][ ] Task 120"),
+                "Tasks should keep their positions in the full list.");
+        assertEquals(0, session.nextListPage, "There is no page after the last.");
+
+        Kif.getResponse(session, "list --page-size 100");
+        String secondPage = Kif.getResponse(session, "list 2");
+        assertTrue(secondPage.contains("101. ") && secondPage.contains("Page 2 of 2."),
+                "The page size should be kept for the session.");
+        assertTrue(Kif.getResponse(session, "list 9").contains("There is no page 9"), "Missing pages should be noted.");
+    }
+
+    @Test
+    void getResponse_ShouldReportStats() {
+        long listsBefore = Metrics.getCommandLatency(Kif.UserCommand.LIST).getCount();
+        Kif.getResponse(session, "list");
+
+        String stats = Kif.getResponse(session, "stats");
+
+        assertEquals(listsBefore + 1, Metrics.getCommandLatency(Kif.UserCommand.LIST).getCount(),
+                "Each command should be timed.");
+        assertTrue(stats.contains("  list: ") && stats.contains("  storage: "), "Commands and phases should be shown.");
+    }
+
+    @Test
+    void toString_ShouldFollowChangesToTask() {
+        Task task = new Task.ToDo("Cached");
+        Storage.writeTask(task);
+        assertEquals("[T][ ] Cached", task.toString(), "A new task should render as not done.");
+        assertSame(task.toString(), task.toString(), "Rendered text should be reused while the task is unchanged.");
+
+        Task.markTask(1);
+
+        assertEquals("[T][X] Cached", task.toString(), "Marking a task should change how it renders.");
+    }
+
     @Test
     void handleCommand_ShouldMarkTask() throws KifException {
         Task task = new Task.ToDo("Task to mark");
-        Task.addTask(task);
+        Storage.writeTask(task);
         int taskIndex = Task.getTaskIndex(task);
 
-        String result = Kif.handleCommand(Kif.UserCommand.MARK, new String[]{
+        String result = Kif.handleCommand(session, Kif.UserCommand.MARK, new String[]{
                 "MARK", String.valueOf(taskIndex)}, "mark " + taskIndex);
 
         assertTrue(task.isDone, "Task should be marked as done.");
@@ -88,11 +232,11 @@ class KifTest {
     @Test
     void handleCommand_ShouldUnmarkTask() throws KifException {
         Task task = new Task.ToDo("Task to unmark");
-        Task.addTask(task);
+        Storage.writeTask(task);
         int taskIndex = Task.getTaskIndex(task);
         task.isDone = true; // Mark the task first
 
-        String result = Kif.handleCommand(Kif.UserCommand.UNMARK, new String[]{"UNMARK", String.valueOf(taskIndex)}, "unmark " + taskIndex);
+        String result = Kif.handleCommand(session, Kif.UserCommand.UNMARK, new String[]{"UNMARK", String.valueOf(taskIndex)}, "unmark " + taskIndex);
 
         assertFalse(task.isDone, "Task should be unmarked (not done).");
         assertEquals(Task.unmarkTask(taskIndex), result, "Unmarking a task should return the correct message.");
@@ -103,7 +247,7 @@ class KifTest {
         String userMessage = "deadline Submit project /by 2025-06-06";
         String[] splitMessage = userMessage.split(" ");
 
-        String result = Kif.handleCommand(Kif.UserCommand.DEADLINE, splitMessage, userMessage);
+        String result = Kif.handleCommand(session, Kif.UserCommand.DEADLINE, splitMessage, userMessage);
         Task lastTask = Task.getTask(Task.getTotalTasks());
 
         assertNotNull(lastTask, "Deadline task should be created.");
@@ -116,7 +260,7 @@ class KifTest {
         String userMessage = "event Birthday Party /from Monday /to Sunday";
         String[] splitMessage = userMessage.split(" ");
 
-        String result = Kif.handleCommand(Kif.UserCommand.EVENT, splitMessage, userMessage);
+        String result = Kif.handleCommand(session, Kif.UserCommand.EVENT, splitMessage, userMessage);
         Task lastTask = Task.getTask(Task.getTotalTasks());
 
         assertNotNull(lastTask, "Event task should be created.");
@@ -127,10 +271,10 @@ class KifTest {
     @Test
     void handleCommand_ShouldDeleteTask() throws KifException {
         Task task = new Task.ToDo("Task to delete");
-        Task.addTask(task);
+        Storage.writeTask(task);
         int taskIndex = Task.getTaskIndex(task);
 
-        Kif.handleCommand(Kif.UserCommand.DELETE, new String[]{
+        Kif.handleCommand(session, Kif.UserCommand.DELETE, new String[]{
                 "DELETE", String.valueOf(taskIndex)}, "delete " + taskIndex);
 
         assertEquals(0, Task.getTotalTasks(), "Deleting a task should remove it.");
@@ -138,17 +282,140 @@ class KifTest {
 
     @Test
     void handleCommand_ShouldExitApplication() throws KifException {
-        String result = Kif.handleCommand(Kif.UserCommand.BYE, new String[]{"BYE"}, "bye");
+        String result = Kif.handleCommand(session, Kif.UserCommand.BYE, new String[]{"BYE"}, "bye");
 
-        assertEquals(Ui.getGoodbyeMessage(), result, "Exiting should return the goodbye message.");
+        assertEquals(Messages.getGoodbyeMessage(), result, "Exiting should return the goodbye message.");
     }
 
     @Test
     void handleCommand_ShouldUndoLastAction() throws KifException {
-        Kif.previousCommand = Kif.UserCommand.TODO;
+        String result = Kif.handleCommand(session, Kif.UserCommand.UNDO, new String[]{"UNDO"}, "cannot Redo");
+
+        assertEquals(Messages.getCannotUndoMessage(), result, "Undo message should match expected output.");
+    }
+
+    @Test
+    void handleCommand_ShouldFindTasksByWordAndPrefix() throws KifException {
+        Storage.writeTask(new Task.ToDo("Borrow library book"));
+        Storage.writeTask(new Task.ToDo("Return book"));
+        Storage.writeTask(new Task.ToDo("Buy groceries"));
+        Task.deleteTask(1);
+
+        String wordResult = Kif.handleCommand(session, Kif.UserCommand.FIND, new String[]{"FIND", "book"}, "find book");
+        String prefixResult = Kif.handleCommand(session, Kif.UserCommand.FIND, new String[]{"FIND", "gro*"}, "find gro*");
+
+        assertTrue(wordResult.contains("1. [T][ ] Return book"), "Matching task should be listed at its position.");
+        assertFalse(wordResult.contains("Borrow"), "Deleted task should no longer match.");
+        assertTrue(prefixResult.contains("2. [T][ ] Buy groceries"), "Prefix should match the start of a word.");
+    }
+
+    @Test
+    void handleCommand_ShouldListPendingDeadlinesInRange() throws KifException {
+        Storage.writeTask(new Task.Deadline("Early", "2025-01-01"));
+        Storage.writeTask(new Task.Deadline("Inside", "2025-01-05"));
+        Storage.writeTask(new Task.Deadline("Finished", "2025-01-06"));
+        Storage.writeTask(new Task.Deadline("Late", "2025-02-01"));
+        Task.markTask(3);
+
+        String result = Kif.handleCommand(session, Kif.UserCommand.DUE,
+                new String[]{"due", "2025-01-02", "2025-01-31"}, "due 2025-01-02 2025-01-31");
+        String overdue = Kif.handleCommand(session, Kif.UserCommand.OVERDUE, new String[]{"overdue"}, "overdue");
+
+        assertTrue(result.contains("2. [D][ ] Inside"), "Deadline inside the range should be listed.");
+        assertFalse(result.contains("Early") || result.contains("Late"), "Deadlines outside the range should not be listed.");
+        assertFalse(result.contains("Finished"), "Done deadlines should not be listed.");
+        assertTrue(overdue.contains("1. [D][ ] Early"), "Past deadlines should be overdue.");
+    }
+
+    @Test
+    void handleCommand_ShouldFindEventsOnDateAndClashes() throws KifException {
+        Storage.writeTask(new Task.Event("Trip", "Mar 10 2025", "2025-03-12"));
+        Storage.writeTask(new Task.Event("Meeting", "2025-03-11 1400", "2025-03-11 1600"));
+        Storage.writeTask(new Task.Event("Dinner", "2025-03-13 1900", "2025-03-13 2100"));
+        Storage.writeTask(new Task.Event("Party", "Monday", "Sunday"));
+
+        String onResult = Kif.handleCommand(session, Kif.UserCommand.ON, new String[]{"on", "2025-03-11"}, "on 2025-03-11");
+        String clashResult = Kif.handleCommand(session, Kif.UserCommand.CLASHES, new String[]{"clashes"}, "clashes");
+
+        assertEquals("2025-03-10", ((Task.Event) Task.getTask(1)).getStart(), "Parsed dates should be kept in ISO form.");
+        assertTrue(onResult.contains("1. [E][ ] Trip (from: Mar 10 2025 to: Mar 12 2025)"), "Multi-day event should span the date.");
+        assertTrue(onResult.contains("2. [E][ ] Meeting (from: Mar 11 2025 14:00 to: Mar 11 2025 16:00)"),
+                "Event on the date should be listed.");
+        assertFalse(onResult.contains("Dinner") || onResult.contains("Party"), "Other events should not be listed.");
+        assertTrue(clashResult.contains("1. [E][ ] Trip") && clashResult.contains("clashes with 2. [E][ ] Meeting"),
+                "Overlapping events should be reported as a clash.");
+        assertFalse(clashResult.contains("Dinner"), "Events without overlaps should not clash.");
+    }
+
+    @Test
+    void getResponseAsync_ShouldRunCommandsInSubmissionOrder() throws Exception {
+        CompletableFuture<String> first = Kif.getResponseAsync("todo First");
+        CompletableFuture<String> second = Kif.getResponseAsync("todo Second");
+        String listing = Kif.getResponseAsync("list").get(5, TimeUnit.SECONDS);
+
+        assertTrue(first.isDone() && second.isDone(), "Earlier commands should finish first.");
+        assertTrue(listing.contains("1. [T][ ] First") && listing.contains("2. [T][ ] Second"),
+                "Commands should apply in the order they were submitted.");
+    }
+
+    @Test
+    void getResponse_ShouldApplyCommandsFromConcurrentSessions() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Session threadSession = new Session();
+            String name = "Thread" + t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    Kif.getResponse(threadSession, "todo " + name + " task " + i);
+                    Kif.getResponse(threadSession, "list");
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(200, Task.getTotalTasks(), "Every task from every session should be added.");
+    }
 
-        String result = Kif.handleCommand(Kif.UserCommand.UNDO, new String[]{"UNDO"}, "cannot Redo");
+    @Test
+    void undoPrevCommand_ShouldOnlyUndoOwnSession() {
+        Session otherSession = new Session();
+        Kif.getResponse(session, "todo Mine");
+
+        assertEquals(Messages.getCannotUndoMessage(), Kif.getResponse(otherSession, "undo"),
+                "Another session should have nothing to undo.");
+        Kif.getResponse(session, "undo");
+        assertEquals(0, Task.getTotalTasks(), "The session should undo its own command.");
+    }
 
-        assertEquals(Ui.getCannotUndoMessage(), result, "Undo message should match expected output.");
+    @Test
+    void getResponse_ListWhileCommandHoldsLock_ShouldNotWait() throws Exception {
+        Kif.getResponse(session, "todo Listed");
+
+        Kif.commandLock.lock();
+        try {
+            String listing = CompletableFuture.supplyAsync(() -> Kif.getResponse(new Session(), "list"))
+                    .get(5, TimeUnit.SECONDS);
+            assertTrue(listing.contains("1. [T][ ] Listed"), "The list should be read without the lock.");
+        } finally {
+            Kif.commandLock.unlock();
+        }
+    }
+
+    @Test
+    void undoPrevCommand_TaskDeletedElsewhere_ShouldUndoTheCommandBefore() {
+        Session otherSession = new Session();
+        Kif.getResponse(session, "todo Kept");
+        Kif.getResponse(session, "todo Gone");
+        Kif.getResponse(session, "mark 2");
+        Kif.getResponse(otherSession, "delete 2");
+
+        Kif.getResponse(session, "undo");
+
+        assertEquals(0, Task.getTotalTasks(), "The creation before the stale commands should be undone.");
+        Kif.getResponse(session, "redo");
+        assertEquals("[T][ ] Kept", Task.getTask(1).toString(), "The undone command should still be redoable.");
     }
-}
\ No newline at end of file
+}
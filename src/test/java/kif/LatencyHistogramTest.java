@@ -0,0 +1,37 @@
+package kif;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void indexOf_ShouldKeepValuesWithinBucketPrecision() {
+        long[] values = {0, 1, 15, 16, 17, 1_000, 123_456, 10_000_000_007L, Long.MAX_VALUE};
+        for (long value : values) {
+            long highest = LatencyHistogram.highestValueAt(LatencyHistogram.indexOf(value));
+            assertTrue(highest >= value, "A bucket should cover its values: " + value);
+            assertTrue(highest - value <= value / 16, "A bucket should be within 1/16 of its values: " + value);
+        }
+        assertTrue(LatencyHistogram.indexOf(1_001) >= LatencyHistogram.indexOf(1_000), "Buckets should be ordered.");
+    }
+
+    @Test
+    void getValueAtPercentile_ShouldFollowRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99), "An empty histogram has no latency.");
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        histogram.record(-5);
+
+        assertEquals(1001, histogram.getCount(), "Every value should be counted.");
+        assertEquals(1_000_000, histogram.getMax(), "The largest value should be kept exactly.");
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 499_000 && median <= 532_000, "The median should be near 500us but was " + median);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 989_000 && p99 <= 1_000_000, "The 99th percentile should be near 990us but was " + p99);
+    }
+}
@@ -0,0 +1,97 @@
+package kif;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserTest {
+
+    private static final String[] INPUTS = {
+        "list", "  mark   2 ", "todo\tread book", "", "   ", "deadline return book /by 2025-03-01",
+        "event party /from 2025-03-01 1800 /to 2025-03-01 2300", "event trip /to Sunday /from Monday",
+        "deadline no marker", "event a /from b", "todo", "FIND Gro*", "find  milk  eggs"
+    };
+
+    @Test
+    void splitUserInput_ShouldMatchWhitespaceSplit() {
+        for (String input : INPUTS) {
+            assertArrayEquals(input.trim().split("\\s+"), Parser.splitUserInput(input), "Words of: " + input);
+        }
+    }
+
+    @Test
+    void parseCommand_ShouldFindCommandIgnoringCase() {
+        assertEquals(Kif.UserCommand.LIST, Parser.parseCommand("list"), "Exact command should be found.");
+        assertEquals(Kif.UserCommand.MARK, Parser.parseCommand("  MaRk 2"), "Case should be ignored.");
+        assertEquals(Kif.UserCommand.DUE, Parser.parseCommand("due 2025-01-01 2025-01-31"), "Short command should match.");
+        assertEquals(Kif.UserCommand.DEADLINE, Parser.parseCommand("deadline x /by 2025-01-01"),
+                "Commands sharing an initial should be told apart.");
+        assertNull(Parser.parseCommand("lists"), "Command must be a whole word.");
+        assertNull(Parser.parseCommand("hello"), "Unknown command should not be found.");
+        assertNull(Parser.parseCommand("  "), "Blank input has no command.");
+        assertNull(Parser.parseCommand("42"), "Input not starting with a letter has no command.");
+    }
+
+    @Test
+    void extractDetails_ShouldMatchRegexSplit() {
+        for (String input : INPUTS) {
+            String[] deadline = input.split(" /by ", 2);
+            deadline[0] = deadline[0].replaceFirst("^deadline ", "").trim();
+            assertArrayEquals(deadline, Parser.extractDeadlineDetails(input), "Deadline details of: " + input);
+
+            String[] event = input.split(" /from | /to ", 3);
+            event[0] = event[0].replaceFirst("^event ", "").trim();
+            assertArrayEquals(event, Parser.extractEventDetails(input), "Event details of: " + input);
+        }
+    }
+
+    @Test
+    void extractToDoDescription_ShouldRejectEmptyDescription() throws KifException {
+        assertEquals("read book", Parser.extractToDoDescription("todo read book"), "Description should be kept.");
+        assertThrows(KifException.class, () -> Parser.extractToDoDescription("todo   "), "Empty todo should fail.");
+    }
+
+    @Test
+    void parseDate_ShouldMatchIsoParsing() throws KifException {
+        assertEquals(LocalDate.of(2024, 2, 29), Parser.parseDate(" 2024-02-29 "), "Leap day should parse.");
+        assertThrows(KifException.class, () -> Parser.parseDate("2025-02-29"), "Invalid day should fail.");
+        assertThrows(KifException.class, () -> Parser.parseDate("2025-03-01x"), "Trailing text should fail.");
+        assertThrows(KifException.class, () -> Parser.parseDate("2025/03/01"), "Other forms should fail.");
+        assertEquals(LocalDateTime.of(2025, 3, 1, 18, 30), Parser.parseEventTime("2025-03-01T18:30"),
+                "Stored date-time should parse.");
+        assertNull(Parser.parseEventTime("2025-03-01T25:00"), "Invalid time should not parse.");
+    }
+
+    @Test
+    void extractListPage_ShouldReadPageAndPageSize() throws KifException {
+        assertArrayEquals(new int[]{1, 50}, Parser.extractListPage(new String[]{"list"}, 50), "Defaults should apply.");
+        assertArrayEquals(new int[]{3, 20}, Parser.extractListPage(new String[]{"list", "3", "--page-size", "20"}, 50),
+                "Page and size should both be read.");
+        assertArrayEquals(new int[]{2, 10}, Parser.extractListPage(new String[]{"list", "--PAGE-SIZE", "10", "2"}, 50),
+                "Options may come first.");
+        assertThrows(KifException.class, () -> Parser.extractListPage(new String[]{"list", "0"}, 50),
+                "Pages start at 1.");
+        assertThrows(KifException.class, () -> Parser.extractListPage(new String[]{"list", "two"}, 50),
+                "A page must be a number.");
+    }
+
+    @Test
+    void formatDate_ShouldMatchFormatterAcrossCachedDays() {
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd yyyy", Locale.ENGLISH);
+        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("MMM dd yyyy HH:mm", Locale.ENGLISH);
+        LocalDate day = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < 3; i++) {
+            // days 4096 apart share a cache entry, so each pass evicts the last
+            LocalDate sharedEntryDay = day.plusDays(4096L * i);
+            LocalDateTime dateTime = sharedEntryDay.atTime(i * 7, 5);
+            assertEquals(sharedEntryDay.format(dateFormatter), Parser.formatDate(sharedEntryDay), "Date text");
+            assertEquals(sharedEntryDay.format(dateFormatter), Parser.formatDate(sharedEntryDay), "Cached date text");
+            assertEquals(dateTime.format(dateTimeFormatter), Parser.formatEventTime(dateTime, ""), "Date-time text");
+        }
+    }
+}
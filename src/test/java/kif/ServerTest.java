@@ -0,0 +1,89 @@
+package kif;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Server server;
+    private Thread serverThread;
+    private Path previousDataDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // commands run on the server's threads, so move the default workspace rather than binding one
+        previousDataDirectory = Workspace.getDefault().dataDirectory;
+        Storage.setDataDirectory(tempDir);
+        Task.clearTasks();
+        server = new Server(0);
+        serverThread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        serverThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException, IOException {
+        server.close();
+        serverThread.join(5000);
+        Storage.setDataDirectory(previousDataDirectory);
+    }
+
+    @Test
+    void run_PipelinedCommands_ShouldReplyInOrderAndCloseAfterBye() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream output = socket.getOutputStream();
+            BufferedReader input = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            // everything is sent before any reply is read
+            output.write("todo first\ntodo second\r\nlist\nbye\ntodo ignored\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            assertTrue(Server.readReply(input).contains("[T][ ] first"), "Replies should come in order.");
+            assertTrue(Server.readReply(input).contains("[T][ ] second"), "Replies should come in order.");
+            String list = Server.readReply(input);
+            assertTrue(list.contains("1. [T][ ] first") && list.contains("2. [T][ ] second"),
+                    "Each command should see the ones before it.");
+            assertEquals(Messages.getGoodbyeMessage().strip(), Server.readReply(input).strip());
+            assertNull(Server.readReply(input), "The connection should close after bye.");
+        }
+        assertEquals(2, Task.getTotalTasks(), "Commands after bye should be ignored.");
+    }
+
+    @Test
+    void encodeReply_LinesStartingWithDot_ShouldRoundTrip() throws IOException {
+        String reply = ".hidden\nplain\n..\n";
+        ByteBuffer encoded = Server.encodeReply(reply);
+
+        BufferedReader input = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(encoded.array()), StandardCharsets.UTF_8));
+
+        assertEquals("..hidden\nplain\n...\n.\n", StandardCharsets.UTF_8.decode(encoded.duplicate()).toString());
+        assertEquals(".hidden\nplain\n..", Server.readReply(input));
+        assertNull(Server.readReply(input));
+    }
+}
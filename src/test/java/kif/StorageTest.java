@@ -0,0 +1,180 @@
+package kif;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageTest {
+
+    private static final int TASK_COUNT = 50_000;
+
+    @TempDir
+    Path tempDir;
+
+    private Path taskFile;
+    private Workspace workspace;
+    private Workspace previous;
+
+    @BeforeEach
+    void setUp() {
+        Storage.setBackend(Storage.Backend.TEXT);
+        Storage.setParallelLoading(false);
+        taskFile = tempDir.resolve("tasks.txt");
+        workspace = new Workspace("test", tempDir);
+        previous = Workspace.bind(workspace);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Storage.closeWorkspace(workspace);
+        Workspace.restore(previous);
+        Storage.setBackend(Storage.Backend.TEXT);
+    }
+
+    private static List<String> createRecords(int count) {
+        List<String> records = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            records.add(Checksums.append(Storage.formatTask(new Task.ToDo("Task " + i))));
+        }
+        return records;
+    }
+
+    @Test
+    void load_TornLastAppend_ShouldTruncateTailWithoutRewriting() throws IOException {
+        Files.write(taskFile, createRecords(TASK_COUNT), StandardCharsets.UTF_8);
+        long intactSize = Files.size(taskFile);
+        String torn = Checksums.append(Storage.formatTask(new Task.ToDo("Task cut short")));
+        // a crash stopped the append part way through the checksum
+        Files.writeString(taskFile, torn.substring(0, torn.length() - 3), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        long linesRewrittenBefore = Metrics.getLinesRewritten();
+
+        long startNanos = System.nanoTime();
+        Storage.initialiseUserTasks();
+        long recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertEquals(TASK_COUNT, Task.getTotalTasks(), "Every complete task should be loaded.");
+        assertEquals(intactSize, Files.size(taskFile), "The torn tail should be cut off.");
+        assertEquals(linesRewrittenBefore, Metrics.getLinesRewritten(), "Recovery should not rewrite the file.");
+        assertTrue(recoveryMillis < 5_000, "Recovery took " + recoveryMillis + " ms.");
+
+        Storage.writeTask(new Task.ToDo("After recovery"));
+        Storage.closeWorkspace(workspace);
+        List<String> lines = Files.readAllLines(taskFile, StandardCharsets.UTF_8);
+        assertEquals(TASK_COUNT + 1, lines.size(), "New tasks should follow the last complete one.");
+        assertEquals(Checksums.append(Storage.formatTask(new Task.ToDo("After recovery"))), lines.get(TASK_COUNT));
+    }
+
+    @Test
+    void load_CorruptRecordInMiddle_ShouldSkipItAndKeepBackup() throws IOException {
+        List<String> records = createRecords(100);
+        records.set(49, records.get(49).replace("Task 50", "Task 5O"));
+        Files.write(taskFile, records, StandardCharsets.UTF_8);
+
+        Storage.initialiseUserTasks();
+
+        assertEquals(99, Task.getTotalTasks(), "The record that fails its checksum should be skipped.");
+        assertEquals("[T][ ] Task 51", Task.getTask(50).toString(), "The tasks after it should still load.");
+        assertEquals(records, Files.readAllLines(Path.of(taskFile + ".bak"), StandardCharsets.UTF_8),
+                "The original file should be kept.");
+        assertEquals(99, Files.readAllLines(taskFile, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void load_LegacyLinesWithoutChecksums_ShouldStillLoad() throws IOException {
+        Files.write(taskFile, List.of("true" + Storage.KEYWORD + "Old task",
+                Checksums.append("false" + Storage.KEYWORD + "New task")), StandardCharsets.UTF_8);
+
+        Storage.initialiseUserTasks();
+
+        assertEquals(2, Task.getTotalTasks());
+        assertEquals("[T][X] Old task", Task.getTask(1).toString());
+        assertEquals("[T][ ] New task", Task.getTask(2).toString());
+    }
+
+    @Test
+    void load_JournalTornInRecord_ShouldDropRecordAndTruncate() throws IOException {
+        Storage.setBackend(Storage.Backend.JOURNAL);
+        Storage.initialiseUserTasks();
+        Storage.writeTask(new Task.ToDo("buy milk"));
+        Storage.writeTask(new Task.ToDo("buy bread"));
+        Storage.closeWorkspace(workspace);
+        Path journalFile = tempDir.resolve("tasks.journal");
+        long intactSize = Files.size(journalFile);
+        // a crash stopped the third append part way through its description
+        String torn = "3 ADD " + Storage.formatTask(new Task.ToDo("buy milk"));
+        Files.writeString(journalFile, torn.substring(0, torn.length() - 3), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        Task.clearTasks();
+        Storage.initialiseUserTasks();
+
+        assertEquals(2, Task.getTotalTasks(), "The torn record should not be replayed.");
+        assertEquals(intactSize, Files.size(journalFile), "The torn record should be cut off.");
+
+        Storage.writeTask(new Task.ToDo("buy eggs"));
+        Storage.closeWorkspace(workspace);
+        Task.clearTasks();
+        Storage.initialiseUserTasks();
+        assertEquals(3, Task.getTotalTasks(), "A record appended after recovery should replay.");
+        assertEquals("[T][ ] buy eggs", Task.getTask(3).toString());
+    }
+
+    @Test
+    void load_JournalMalformedRecords_ShouldSkipThem() throws IOException {
+        Storage.setBackend(Storage.Backend.JOURNAL);
+        Storage.initialiseUserTasks();
+        Storage.writeTask(new Task.ToDo("buy milk"));
+        Storage.closeWorkspace(workspace);
+        Path journalFile = tempDir.resolve("tasks.journal");
+        String separator = System.lineSeparator();
+        Files.writeString(journalFile, "x ADD " + Storage.formatTask(new Task.ToDo("bad sequence")) + separator
+                + Checksums.append("2 RENAME 1") + separator
+                + Checksums.append("3 ADD " + Storage.formatTask(new Task.ToDo("buy bread"))) + separator,
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        Task.clearTasks();
+        Storage.initialiseUserTasks();
+
+        assertEquals(2, Task.getTotalTasks(), "Malformed records should be skipped, not stop the replay.");
+        assertEquals("[T][ ] buy bread", Task.getTask(2).toString());
+    }
+
+    @Test
+    void editTaskTxt_FailureBeforeRename_ShouldLeaveTaskFileIntact() throws IOException {
+        List<String> records = createRecords(10);
+        Files.write(taskFile, records, StandardCharsets.UTF_8);
+        Storage.initialiseUserTasks();
+        // a directory where the new copy should go makes the rewrite fail before it can replace the file
+        Path rewritePath = Path.of(taskFile + ".new");
+        Files.createDirectory(rewritePath);
+
+        assertThrows(RuntimeException.class, () -> Storage.editTaskTxt(3, Kif.UserCommand.MARK));
+        assertEquals(records, Files.readAllLines(taskFile, StandardCharsets.UTF_8), "The old list should survive.");
+
+        // a crash after writing part of the new copy leaves it behind, and loading must ignore it
+        Files.delete(rewritePath);
+        Files.writeString(rewritePath, records.get(0), StandardCharsets.UTF_8);
+        Task.clearTasks();
+        Storage.initialiseUserTasks();
+        assertEquals(10, Task.getTotalTasks(), "The old list should be loaded.");
+        assertFalse(Files.exists(rewritePath), "The unfinished copy should be removed.");
+
+        Storage.editTaskTxt(3, Kif.UserCommand.MARK);
+        Task.clearTasks();
+        Storage.initialiseUserTasks();
+        assertEquals("[T][X] Task 3", Task.getTask(3).toString(), "A rewrite should keep its checksums valid.");
+    }
+}
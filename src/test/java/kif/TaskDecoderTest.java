@@ -0,0 +1,108 @@
+package kif;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskDecoderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void decode_ShouldReadBackFormattedTasks() throws KifException {
+        Task deadline = new Task.Deadline("Return book", "2025-03-01");
+        deadline.isDone = true;
+        List<Task> tasks = List.of(new Task.ToDo("Read"), deadline,
+                new Task.Event("Party", "2025-03-01 1800", "late"));
+
+        for (Task task : tasks) {
+            Task decoded = TaskDecoder.decode(Storage.formatTask(task));
+            assertEquals(task.toString(), decoded.toString(), "Decoded task should match the original.");
+        }
+    }
+
+    @Test
+    void decode_ShouldRejectMalformedLines() {
+        assertThrows(KifException.class, () -> TaskDecoder.decode("just text"), "A line needs fields.");
+        assertThrows(KifException.class, () -> TaskDecoder.decode("false" + Storage.KEYWORD.repeat(5) + "x"),
+                "A line cannot have too many fields.");
+    }
+
+    @Test
+    void decodeFile_ShouldReadLinesAcrossBufferBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            content.append("false").append(Storage.KEYWORD).append("Task ").append(i).append("\r\n");
+        }
+        content.append("true").append(Storage.KEYWORD).append("Last \u00fcn\u00efcode");
+        Path file = tempDir.resolve("tasks.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        List<Task> tasks = new ArrayList<>();
+        TaskDecoder.decodeFile(file, tasks::add);
+
+        assertEquals(100_001, tasks.size(), "Every line should be decoded.");
+        assertEquals("Task 54321", tasks.get(54_321).description, "Lines should stay in order.");
+        assertEquals("[T][X] Last \u00fcn\u00efcode", tasks.get(100_000).toString(),
+                "The unterminated last line should be read.");
+    }
+
+    @Test
+    void decodeFileInParallel_ShouldMatchSequentialDecodingAndSkipMalformedLines() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 300_000; i++) {
+            content.append(i % 100_000 == 0 ? "not a task" : "false" + Storage.KEYWORD + "Task " + i).append('\n');
+        }
+        Path file = tempDir.resolve("tasks.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        List<Task> sequential = new ArrayList<>();
+        List<TaskDecoder.MalformedLine> sequentialErrors = TaskDecoder.decodeFile(file, sequential::add);
+        List<Task> parallel = new ArrayList<>();
+        List<TaskDecoder.MalformedLine> parallelErrors = TaskDecoder.decodeFileInParallel(file, parallel::add);
+
+        assertEquals(299_997, parallel.size(), "Every valid line should be decoded.");
+        for (int i = 0; i < parallel.size(); i += 997) {
+            assertEquals(sequential.get(i).description, parallel.get(i).description, "Tasks should stay in order.");
+        }
+        assertEquals("Task 299999", parallel.get(parallel.size() - 1).description, "The last chunk should be read.");
+        assertEquals(List.of(100_000L, 200_000L, 300_000L),
+                parallelErrors.stream().map(TaskDecoder.MalformedLine::lineNumber).toList(),
+                "Malformed lines should be reported with their line numbers.");
+        assertEquals(sequentialErrors, parallelErrors, "Both loaders should report the same lines.");
+    }
+
+    @Test
+    void decodeFileInParallel_TornLineAloneInLastChunk_ShouldBeMalformed() throws IOException {
+        StringBuilder content = new StringBuilder();
+        // fill the first chunk so that the torn line starts the next one
+        for (int i = 1; content.length() <= 4 << 20; i++) {
+            content.append(Checksums.append("false" + Storage.KEYWORD + "Task " + i)).append('\n');
+        }
+        int lineCount = (int) content.chars().filter(c -> c == '\n').count();
+        long tornOffset = content.length();
+        content.append("false" + Storage.KEYWORD + "buy mi");
+        Path file = tempDir.resolve("tasks.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        List<Task> sequential = new ArrayList<>();
+        List<TaskDecoder.MalformedLine> sequentialErrors = TaskDecoder.decodeFile(file, sequential::add);
+        List<Task> parallel = new ArrayList<>();
+        List<TaskDecoder.MalformedLine> parallelErrors = TaskDecoder.decodeFileInParallel(file, parallel::add);
+
+        assertEquals(lineCount, parallel.size(), "The torn line should not be decoded.");
+        assertEquals(List.of(new TaskDecoder.MalformedLine(lineCount + 1, "false" + Storage.KEYWORD + "buy mi",
+                tornOffset, true)), parallelErrors, "The torn line should be reported.");
+        assertEquals(sequentialErrors, parallelErrors, "Both loaders should report the same lines.");
+        assertEquals(sequential.size(), parallel.size());
+    }
+}
@@ -0,0 +1,168 @@
+package kif;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskListTest {
+
+    private TaskList taskList;
+
+    @BeforeEach
+    void setUp() {
+        taskList = new TaskList();
+    }
+
+    @Test
+    void add_ShouldAssignDistinctIds() {
+        Task first = new Task.ToDo("First");
+        Task second = new Task.ToDo("Second");
+        taskList.add(first);
+        taskList.add(second);
+
+        assertNotEquals(first.id, second.id, "Tasks should be given distinct ids.");
+        assertEquals(2, taskList.size(), "Both tasks should be in the list.");
+    }
+
+    @Test
+    void indexOf_ShouldTrackPositionsAcrossDeletes() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Task task = new Task.ToDo("Task " + i);
+            tasks.add(task);
+            taskList.add(task);
+        }
+
+        // delete every other task, from the back so the expected positions stay simple
+        for (int i = 998; i >= 0; i -= 2) {
+            taskList.remove(i);
+        }
+
+        assertEquals(500, taskList.size(), "Half the tasks should remain.");
+        for (int i = 1; i < 1000; i += 2) {
+            assertEquals(i / 2, taskList.indexOf(tasks.get(i)), "Remaining task should shift down.");
+            assertSame(tasks.get(i), taskList.get(i / 2), "Lookup by position should match.");
+        }
+        assertEquals(-1, taskList.indexOf(tasks.get(0)), "Deleted task should not be found.");
+    }
+
+    @Test
+    void indexOf_ShouldNotMatchDifferentTaskWithSameDescription() {
+        taskList.add(new Task.ToDo("Same"));
+
+        assertEquals(-1, taskList.indexOf(new Task.ToDo("Same")), "Lookup should be by identity.");
+    }
+
+    @Test
+    void iterator_ShouldSkipDeletedTasks() {
+        for (int i = 0; i < 5; i++) {
+            taskList.add(new Task.ToDo("Task " + i));
+        }
+        taskList.remove(1);
+        taskList.remove(2);
+
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.description);
+        }
+
+        assertEquals(List.of("Task 0", "Task 2", "Task 4"), descriptions, "Iteration should follow list order.");
+    }
+
+    @Test
+    void resetLazily_ShouldMaterializeTasksOnDemand() {
+        List<Integer> loaded = new ArrayList<>();
+        taskList.resetLazily(1000, position -> {
+            loaded.add(position);
+            return new Task.ToDo("Task " + position);
+        });
+
+        assertTrue(loaded.isEmpty(), "No task should be created up front.");
+        assertEquals("Task 600", taskList.get(599).description, "Task should be loaded from its position.");
+        assertEquals(TaskList.PAGE_SIZE, loaded.size(), "Only the accessed page should be loaded.");
+
+        taskList.remove(0);
+        assertEquals("Task 2", taskList.get(0).description, "Positions should shift after a delete.");
+        assertEquals(598, taskList.indexOf(taskList.get(598)), "Materialized tasks should be found by id.");
+    }
+
+    @Test
+    void snapshot_ShouldNotSeeLaterChanges() {
+        for (int i = 0; i < 3; i++) {
+            taskList.add(new Task.ToDo("Task " + i));
+        }
+        TaskList.Snapshot snapshot = taskList.snapshot();
+        taskList.remove(0);
+        taskList.add(new Task.ToDo("Task 3"));
+
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : snapshot) {
+            descriptions.add(task.description);
+        }
+
+        assertEquals(List.of("Task 0", "Task 1", "Task 2"), descriptions, "Snapshot should keep its tasks.");
+        assertEquals("Task 1", taskList.get(0).description, "List should still change after a snapshot.");
+    }
+
+    @Test
+    void snapshotRun_AfterDeletes_ShouldHoldOnlyTheRun() {
+        taskList.resetLazily(600, position -> new Task.ToDo("Task " + position));
+        taskList.remove(300);
+        taskList.remove(0);
+
+        TaskList.Snapshot snapshot = taskList.snapshot(298, 3);
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : snapshot) {
+            descriptions.add(task.description);
+        }
+
+        assertEquals(List.of("Task 300", "Task 302", "Task 303"), descriptions, "Deleted tasks should be skipped.");
+        assertEquals(3, snapshot.size());
+        assertEquals(598, snapshot.listSize());
+        assertEquals(0, taskList.snapshot(598, 5).size(), "A run past the end should be empty.");
+    }
+
+    @Test
+    void publishedView_ShouldNotSeeLaterChanges() {
+        for (int i = 0; i < 600; i++) {
+            taskList.add(new Task.ToDo("Task " + i));
+        }
+        taskList.publish();
+        TaskList.View view = taskList.published();
+        taskList.remove(0);
+        taskList.remove(400);
+        taskList.add(new Task.ToDo("Task 600"));
+
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : view.snapshot(298, 3)) {
+            descriptions.add(task.description);
+        }
+
+        assertEquals(List.of("Task 298", "Task 299", "Task 300"), descriptions, "The view should keep its tasks.");
+        assertEquals(600, view.size());
+        assertEquals("Task 1", taskList.get(0).description, "The list should still change after publishing.");
+        assertEquals("Task 402", taskList.get(400).description);
+        assertFalse(taskList.published().snapshot(0, 1).isLoaded(), "Added tasks need no loading.");
+    }
+
+    @Test
+    void publishedView_OfLazyList_ShouldLoadTasksWithoutKeepingThem() {
+        taskList.resetLazily(600, position -> new Task.ToDo("Task " + position));
+        taskList.remove(0);
+        taskList.publish();
+
+        TaskList.Snapshot snapshot = taskList.published().snapshot(400, 2);
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : snapshot) {
+            descriptions.add(task.description);
+        }
+
+        assertTrue(snapshot.isLoaded(), "Tasks not yet materialized should be loaded.");
+        assertEquals(List.of("Task 401", "Task 402"), descriptions, "Loaded tasks should keep their positions.");
+        assertEquals(599, snapshot.listSize());
+    }
+}
@@ -0,0 +1,110 @@
+package kif;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkspaceRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Storage.setBackend(Storage.Backend.TEXT);
+        Task.clearTasks();
+    }
+
+    @Test
+    void get_ShouldLoadEachWorkspaceFromItsOwnDirectory() throws IOException {
+        Files.createDirectories(tempDir.resolve("alice"));
+        Files.write(tempDir.resolve("alice").resolve("tasks.txt"), List.of(
+                Storage.formatTask(new Task.ToDo("feed the cat")), Storage.formatTask(new Task.ToDo("water plants"))));
+        WorkspaceRegistry registry = new WorkspaceRegistry(tempDir, 4);
+
+        Workspace alice = registry.get("alice");
+        Workspace bob = registry.get("bob");
+
+        assertEquals(2, alice.tasks.size(), "Alice's tasks should be loaded on first use.");
+        assertEquals(0, bob.tasks.size(), "A new workspace should start empty.");
+        assertSame(alice, registry.get("alice"), "A loaded workspace should be reused.");
+        assertEquals(0, Task.getTotalTasks(), "The default workspace should be untouched.");
+    }
+
+    @Test
+    void get_OverCapacity_ShouldEvictLeastRecentlyUsedAndKeepItsTasks() throws IOException {
+        WorkspaceRegistry registry = new WorkspaceRegistry(tempDir, 2);
+        Workspace first = registry.get("first");
+        registry.get("second");
+        Workspace previous = Workspace.bind(first);
+        try {
+            Storage.writeTask(new Task.ToDo("survive eviction"));
+        } finally {
+            Workspace.restore(previous);
+        }
+
+        registry.get("first");
+        registry.get("third");
+
+        assertTrue(registry.isLoaded("first"), "The recently used workspace should stay loaded.");
+        assertFalse(registry.isLoaded("second"), "The least recently used workspace should be evicted.");
+        assertEquals(2, registry.getLoadedCount());
+
+        registry.get("second");
+        assertFalse(registry.isLoaded("first"), "Loading again should evict the next least recently used.");
+        Workspace reloaded = registry.get("first");
+        assertNotSame(first, reloaded, "An evicted workspace should be loaded afresh.");
+        assertEquals(1, reloaded.tasks.size(), "Changes should be saved when a workspace is evicted.");
+        assertEquals("[T][ ] survive eviction", reloaded.tasks.get(0).toString());
+    }
+
+    @Test
+    void get_PinnedWorkspace_ShouldNotBeEvicted() throws IOException {
+        WorkspaceRegistry registry = new WorkspaceRegistry(tempDir, 1);
+        Workspace first = registry.get("first");
+        registry.pin(first);
+
+        registry.get("second");
+        assertTrue(registry.isLoaded("first"), "A pinned workspace should stay loaded.");
+        assertEquals(2, registry.getLoadedCount(), "The registry should go over capacity rather than evict it.");
+
+        registry.unpin(first);
+        registry.get("third");
+        assertFalse(registry.isLoaded("first"), "An unpinned workspace should be evicted again.");
+        registry.closeAll();
+    }
+
+    @Test
+    void closeAll_ShouldSaveDeferredChanges() throws IOException {
+        WorkspaceRegistry registry = new WorkspaceRegistry(tempDir, 2);
+        Workspace workspace = registry.get("deferred");
+        Workspace previous = Workspace.bind(workspace);
+        try {
+            Storage.deferWrites();
+            Storage.writeTask(new Task.ToDo("saved on exit"));
+        } finally {
+            Workspace.restore(previous);
+        }
+
+        registry.closeAll();
+
+        assertEquals(List.of(Checksums.append(Storage.formatTask(new Task.ToDo("saved on exit")))),
+                Files.readAllLines(tempDir.resolve("deferred").resolve("tasks.txt")),
+                "Deferred changes should be written when the workspace is closed.");
+    }
+
+    @Test
+    void isValidName_ShouldRejectNamesThatAreNotPlainDirectoryNames() {
+        assertTrue(WorkspaceRegistry.isValidName("team-a_2"));
+        assertFalse(WorkspaceRegistry.isValidName(".."));
+        assertFalse(WorkspaceRegistry.isValidName("a/b"));
+        assertFalse(WorkspaceRegistry.isValidName(""));
+    }
+}
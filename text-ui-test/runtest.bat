@@ -7,8 +7,8 @@ REM delete output from previous run
 if exist ACTUAL.TXT del ACTUAL.TXT
 if exist tasks.txt del tasks.txt
 
-REM compile the code into the bin folder
-javac  -cp ..\src\main\java -Xlint:none -d ..\bin ..\src\main\java\kif\*.java
+REM compile the console interface and what it uses into the bin folder, without JavaFX
+javac -sourcepath ..\src\main\java -Xlint:none -d ..\bin ..\src\main\java\kif\Cli.java
 IF ERRORLEVEL 1 (
     echo ********** BUILD FAILURE **********
     exit /b 1
@@ -16,7 +16,7 @@ IF ERRORLEVEL 1 (
 REM no error here, errorlevel == 0
 
 REM run the program, feed commands from input.txt file and redirect the output to the ACTUAL.TXT
-java -classpath ..\bin Kif < input.txt > ACTUAL.TXT
+java -classpath ..\bin kif.Cli < input.txt > ACTUAL.TXT
 
 REM compare the output to the expected output
 FC ACTUAL.TXT EXPECTED.TXT
@@ -6,21 +6,22 @@ then
     mkdir ../bin
 fi
 
-# delete output from previous run
+# delete output and tasks from previous run
 if [ -e "./ACTUAL.TXT" ]
 then
     rm ACTUAL.TXT
 fi
+rm -f tasks.txt
 
-# compile the code into the bin folder, terminates if error occurred
-if ! javac -cp ../src/main/java -Xlint:none -d ../bin ../src/main/java/*.java
+# compile the console interface and what it uses into the bin folder, without JavaFX; terminates if error occurred
+if ! javac -sourcepath ../src/main/java -Xlint:none -d ../bin ../src/main/java/kif/Cli.java
 then
     echo "********** BUILD FAILURE **********"
     exit 1
 fi
 
 # run the program, feed commands from input.txt file and redirect the output to the ACTUAL.TXT
-java -classpath ../bin Kif < input.txt > ACTUAL.TXT
+java -classpath ../bin kif.Cli < input.txt > ACTUAL.TXT
 
 # convert to UNIX format
 cp EXPECTED.TXT EXPECTED-UNIX.TXT